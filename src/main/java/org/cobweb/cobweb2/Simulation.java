@@ -11,16 +11,22 @@ import java.util.Set;
 
 import org.cobweb.cobweb2.core.Agent;
 import org.cobweb.cobweb2.core.AgentListener;
+import org.cobweb.cobweb2.core.AgentRegistry;
 import org.cobweb.cobweb2.core.AgentSimilarityCalculator;
+import org.cobweb.cobweb2.core.EventScheduler;
 import org.cobweb.cobweb2.core.SimulationInternals;
+import org.cobweb.cobweb2.core.SlottedStats;
 import org.cobweb.cobweb2.core.StateParameter;
 import org.cobweb.cobweb2.core.StatePlugin;
 import org.cobweb.cobweb2.core.Topology;
 import org.cobweb.cobweb2.impl.AgentSpawner;
 import org.cobweb.cobweb2.impl.ComplexAgent;
+import org.cobweb.cobweb2.impl.ComplexAgentParams;
 import org.cobweb.cobweb2.impl.ComplexEnvironment;
+import org.cobweb.cobweb2.impl.ParallelTickEngine;
 import org.cobweb.cobweb2.plugins.AgentState;
 import org.cobweb.cobweb2.plugins.MutatorListener;
+import org.cobweb.cobweb2.plugins.abiotic.AbioticFactor;
 import org.cobweb.cobweb2.plugins.abiotic.AbioticMutator;
 import org.cobweb.cobweb2.plugins.broadcast.PacketConduit;
 import org.cobweb.cobweb2.plugins.disease.DiseaseMutator;
@@ -31,12 +37,16 @@ import org.cobweb.cobweb2.plugins.gravity.GravityMutator;
 import org.cobweb.cobweb2.plugins.learning.LearningMutator;
 import org.cobweb.cobweb2.plugins.pd.PDMutator;
 import org.cobweb.cobweb2.plugins.personalities.PersonalityMutator;
+import org.cobweb.cobweb2.plugins.production.ProductionAgentParams;
 import org.cobweb.cobweb2.plugins.production.ProductionMapper;
 import org.cobweb.cobweb2.plugins.stats.EnergyStats;
 import org.cobweb.cobweb2.plugins.stats.StatsMutator;
+import org.cobweb.cobweb2.plugins.swarm.PairwiseEffect;
+import org.cobweb.cobweb2.plugins.swarm.SwarmAgentParams;
 import org.cobweb.cobweb2.plugins.swarm.SwarmMutator;
 import org.cobweb.cobweb2.plugins.toxin.ToxinMutator;
 import org.cobweb.cobweb2.plugins.vision.VisionMutator;
+import org.cobweb.cobweb2.plugins.vision.VisionState;
 import org.cobweb.cobweb2.plugins.waste.WasteMutator;
 import org.cobweb.cobweb2.ui.SimulationInterface;
 import org.cobweb.util.RandomNoGenerator;
@@ -58,9 +68,19 @@ public class Simulation implements SimulationInternals, SimulationInterface {
 	private int time = 0;
 
 	private AgentSpawner agentSpawner;
-	private List<Agent> agents = new LinkedList<Agent>();
+	private AgentRegistry agents = new AgentRegistry();
 	private int nextAgentId = 1;
 
+	private EventScheduler scheduler = new EventScheduler();
+
+	private ParallelTickEngine tickEngine;
+	private boolean tickConcurrent;
+
+	/**
+	 * Statistics gathered by tile during parallel updates, merged at the end of each tick
+	 */
+	private final List<SlottedStats> slottedStats = new ArrayList<SlottedStats>();
+
 	private AgentSimilarityCalculator similarityCalculator;
 
 	// TODO: all of this should be in a collection
@@ -94,6 +114,7 @@ public class Simulation implements SimulationInternals, SimulationInterface {
 
 	public void resetTime() {
 		time = 0;
+		scheduler.setTime(time);
 	}
 
 	/**
@@ -181,6 +202,7 @@ public class Simulation implements SimulationInternals, SimulationInterface {
 		// Remove all agent mutators if removing old agents
 		if (!p.keepOldAgents) {
 			nextAgentId = 1;
+			scheduler.clear();
 			mutatorListener.clearMutators();
 			aiStatePlugins.clear();
 			agents.clear();
@@ -274,7 +296,7 @@ public class Simulation implements SimulationInternals, SimulationInterface {
 		FoodGrowth foodGrowth = theEnvironment.getPlugin(FoodGrowth.class);
 		foodGrowth.setParams(theEnvironment, p.foodParams);
 		PacketConduit packetConduit = theEnvironment.getPlugin(PacketConduit.class);
-		packetConduit.setParams(theEnvironment.topology);
+		packetConduit.setParams(theEnvironment.topology, p.envParams.broadcastsPerTick);
 
 		// plugins are keyed against class, they get replaced
 		theEnvironment.addPlugin(abioticMutator);
@@ -287,6 +309,7 @@ public class Simulation implements SimulationInternals, SimulationInterface {
 		pdMutator.setParams(p.pdParams);
 		wasteMutator.setParams(p.wasteParams, theEnvironment);
 		prodMapper.setParams(simulationConfig.prodParams, theEnvironment, p.keepOldDrops);
+		energyStats.setParams(theEnvironment.topology);
 		abioticMutator.setParams(this, p.abioticParams);
 		swarmMutator.setParams(this, simulationConfig.swarmParams, theEnvironment);
 		diseaseMutator.setParams(this, p.diseaseParams, p.getAgentTypes());
@@ -297,10 +320,17 @@ public class Simulation implements SimulationInternals, SimulationInterface {
 		fusionMutator.setParams(this, p.fusionParams);
 		gravityMutator.setParams(this, p.gravityParams);
 
+		// Leave out plugins the new settings turned off
+		mutatorListener.rebuild(p.getAgentTypes());
+
 
 		// Update AI state plugins
 		setupAIStatePlugins();
 
+		setupTickEngine(p);
+		abioticMutator.setTickEngine(tickEngine);
+		setupSlottedStats(p);
+
 
 		// This is where the setup ends and simulation begins
 
@@ -316,32 +346,116 @@ public class Simulation implements SimulationInternals, SimulationInterface {
 	@Override
 	public void step() {
 
+		scheduler.runEvents(time);
+
 		theEnvironment.update();
 
 		// TODO synchronize on something other than environment?
 		synchronized(theEnvironment) {
-			for (Agent agent : new LinkedList<Agent>(agents)) {
-				agent.update();
+			agents.beginTick();
 
-				mutatorListener.onUpdate(agent);
+			if (tickEngine != null) {
+				tickEngine.step(agents, mutatorListener, tickConcurrent);
+				tickEngine.releaseBirths(this);
+				for (SlottedStats stats : slottedStats)
+					stats.mergeUpdateSlots();
+			} else {
+				for (int i = 0; i < agents.size(); i++) {
+					Agent agent = agents.get(i);
+					agent.update();
 
-				if (!agent.isAlive())
-					agents.remove(agent);
+					mutatorListener.onUpdate(agent);
+				}
 			}
+
+			agents.endTick();
 		}
 
 		time++;
 	}
 
+	/**
+	 * Sets up tiled agent updates if enabled in the configuration.
+	 * Features that let agents affect each other across the whole grid still use the tiles,
+	 * but run them one at a time.
+	 */
+	private void setupTickEngine(SimulationConfig p) {
+		if (tickEngine != null) {
+			tickEngine.shutdown();
+			tickEngine = null;
+		}
+		if (p.parallelThreads <= 0)
+			return;
+
+		tickEngine = new ParallelTickEngine(this, p.parallelThreads, p.parallelTileSize);
+		tickEngine.setTopology(theEnvironment.topology, getInteractionReach(p));
+		tickConcurrent = isSpatiallyLocal(p);
+	}
+
+	private void setupSlottedStats(SimulationConfig p) {
+		slottedStats.clear();
+		slottedStats.add(energyStats);
+		slottedStats.add(toxinMutator);
+		slottedStats.add(geneticMutator.getTracker());
+		if (p.controllerParams instanceof SlottedStats)
+			slottedStats.add((SlottedStats) p.controllerParams);
+
+		int slots = tickEngine == null ? 0 : tickEngine.getTileCount();
+		for (SlottedStats stats : slottedStats)
+			stats.setUpdateSlots(this, slots);
+	}
+
+	/**
+	 * @return how far from its starting cell an agent update can read or change anything:
+	 * one step of movement plus the furthest the agent can see, sense or place a child.
+	 */
+	private static int getInteractionReach(SimulationConfig p) {
+		int reach = Math.max(2, VisionState.LOOK_DISTANCE);
+		for (SwarmAgentParams swarm : p.swarmParams.agentParams) {
+			for (PairwiseEffect effect : swarm.effects) {
+				reach = Math.max(reach, (int) Math.ceil(effect.radius));
+			}
+		}
+		return reach + 1;
+	}
+
+	private static boolean isSpatiallyLocal(SimulationConfig p) {
+		if (p.personalityParams.personalitiesEnabled || p.gravityParams.gravityEnabled)
+			return false;
+
+		for (ComplexAgentParams agent : p.agentParams.agentParams) {
+			if (agent.broadcastMode)
+				return false;
+		}
+		for (ProductionAgentParams production : p.prodParams.agentParams) {
+			if (production.productionMode)
+				return false;
+		}
+		for (AbioticFactor factor : p.abioticParams.factors) {
+			// Barriers can teleport agents anywhere on the grid
+			if (!factor.punishment)
+				return false;
+		}
+		return true;
+	}
+
 
 	@Override
 	public void addAgent(Agent agent) {
+		if (tickEngine != null && tickEngine.holdBirth(agent))
+			return;
+
 		agents.add(agent);
 		agent.id = nextAgentId++;
 	}
 
 	@Override
 	public RandomNoGenerator getRandom() {
+		if (tickEngine != null) {
+			RandomNoGenerator tileRandom = tickEngine.getTileRandom();
+			if (tileRandom != null)
+				return tileRandom;
+		}
 		return random;
 	}
 
@@ -364,6 +478,8 @@ public class Simulation implements SimulationInternals, SimulationInterface {
 
 	private Map<String, StateParameter> aiStateMap = new LinkedHashMap<String, StateParameter>();
 
+	private StateParameter[] aiStateParameters = new StateParameter[0];
+
 	private List<StatePlugin> aiStatePlugins = new LinkedList<StatePlugin>();
 
 	private void setupAIStatePlugins() {
@@ -373,6 +489,12 @@ public class Simulation implements SimulationInternals, SimulationInterface {
 				aiStateMap.put(param.getName(), param);
 			}
 		}
+		aiStateParameters = aiStateMap.values().toArray(new StateParameter[aiStateMap.size()]);
+	}
+
+	@Override
+	public StateParameter[] getStateParameters() {
+		return aiStateParameters;
 	}
 
 	@Override
@@ -385,7 +507,7 @@ public class Simulation implements SimulationInternals, SimulationInterface {
 		return similarityCalculator;
 	}
 
-	public MutatorListener mutatorListener = new MutatorListener();
+	public MutatorListener mutatorListener = new MutatorListener(this);
 
 	private EnergyStats energyStats;
 
@@ -394,6 +516,16 @@ public class Simulation implements SimulationInternals, SimulationInterface {
 		return mutatorListener;
 	}
 
+	@Override
+	public EventScheduler getScheduler() {
+		return scheduler;
+	}
+
+	@Override
+	public int getUpdateSlot() {
+		return tickEngine == null ? -1 : tickEngine.getTileIndex();
+	}
+
 	/**
 	 * Checks whether given AgentState can be used in the current simulation configuration
 	 * @param type specific Class of AgentState
@@ -404,4 +536,15 @@ public class Simulation implements SimulationInternals, SimulationInterface {
 		return mutatorListener.supportsState(type, value);
 	}
 
+	/**
+	 * Gives an agent a stored AgentState, such as one from a saved population.
+	 * @param agent agent to give the state to
+	 * @param type specific Class of AgentState
+	 * @param value value of AgentState, supported in the current configuration
+	 */
+	public <T extends AgentState> void loadState(ComplexAgent agent, Class<T> type, T value) {
+		if (!mutatorListener.loadState(agent, type, value))
+			agent.setState(type, value);
+	}
+
 }
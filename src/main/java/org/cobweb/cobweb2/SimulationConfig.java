@@ -45,6 +45,22 @@ public class SimulationConfig implements SimulationParams, ParameterSerializable
 	@ConfXMLTag("randomSeed")
 	public long randomSeed = 42;
 
+	/**
+	 * Number of threads used to update agents. 0 updates agents one by one in the order they were
+	 * added; 1 or more updates them tile by tile, and results for a given seed do not depend on the
+	 * exact number of threads.
+	 */
+	@ConfDisplayName("Parallel threads")
+	@ConfXMLTag("parallelThreads")
+	public int parallelThreads = 0;
+
+	/**
+	 * Minimum width and height of the tiles used by parallel updates.
+	 */
+	@ConfDisplayName("Parallel tile size")
+	@ConfXMLTag("parallelTileSize")
+	public int parallelTileSize = 16;
+
 	/**
 	 * Number of Agent types.
 	 */
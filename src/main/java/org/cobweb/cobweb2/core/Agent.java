@@ -19,6 +19,11 @@ public abstract class Agent implements Updatable {
 
 	private int type;
 
+	/**
+	 * Position of this Agent in the AgentRegistry, -1 when not registered.
+	 */
+	int registrySlot = -1;
+
 	public Agent(int type) {
 		this.type = type;
 	}
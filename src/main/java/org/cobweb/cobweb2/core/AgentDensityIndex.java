@@ -0,0 +1,122 @@
+package org.cobweb.cobweb2.core;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Number of agents of each type on the grid, kept up to date as agents are placed, moved and
+ * removed, so the number of agents of a type within a radius can be found without looking at
+ * every cell.
+ *
+ * <p>Each row of the grid holds one segment tree per agent type. A radius query adds up the few
+ * tree nodes that exactly cover each row span of the area. Those nodes only cover cells inside
+ * the area, so agents moving elsewhere on the grid at the same time do not change the result.
+ */
+public class AgentDensityIndex {
+
+	private Topology topology;
+
+	/**
+	 * Segment trees by agent type. Row y of the grid is stored at y * 2 * width; its leaves start
+	 * at width, the root is at 1.
+	 */
+	private volatile AtomicIntegerArray[] trees = new AtomicIntegerArray[0];
+
+	AgentDensityIndex(Topology topology) {
+		this.topology = topology;
+	}
+
+	/**
+	 * Forgets all agents and switches to a new grid.
+	 */
+	synchronized void reset(Topology newTopology) {
+		topology = newTopology;
+		trees = new AtomicIntegerArray[0];
+	}
+
+	synchronized void clear() {
+		trees = new AtomicIntegerArray[0];
+	}
+
+	void add(Agent agent, int cell) {
+		change(agent.getType(), cell, 1);
+	}
+
+	void remove(Agent agent, int cell) {
+		change(agent.getType(), cell, -1);
+	}
+
+	void move(Agent agent, int fromCell, int toCell) {
+		int type = agent.getType();
+		change(type, fromCell, -1);
+		change(type, toCell, 1);
+	}
+
+	private void change(int type, int cell, int delta) {
+		AtomicIntegerArray tree = getTree(type);
+		int width = topology.width;
+		int x = topology.getCellX(cell);
+		int row = topology.getCellY(cell) * 2 * width;
+		for (int node = x + width; node > 0; node >>= 1) {
+			tree.addAndGet(row + node, delta);
+		}
+	}
+
+	private AtomicIntegerArray getTree(int type) {
+		AtomicIntegerArray[] current = trees;
+		if (type < current.length)
+			return current[type];
+		return addTree(type);
+	}
+
+	private synchronized AtomicIntegerArray addTree(int type) {
+		AtomicIntegerArray[] current = trees;
+		if (type >= current.length) {
+			current = Arrays.copyOf(current, type + 1);
+			for (int t = trees.length; t < current.length; t++)
+				current[t] = new AtomicIntegerArray(topology.height * 2 * topology.width);
+			trees = current;
+		}
+		return current[type];
+	}
+
+	/**
+	 * @return number of agents of the given type at cells within radius of the centre cell,
+	 * including the centre; the area is the same as for
+	 * {@link Topology#forEachInArea(int, float, CellVisitor)}
+	 */
+	public int countInArea(int type, int centre, float radius) {
+		AtomicIntegerArray[] current = trees;
+		if (type >= current.length)
+			return 0;
+		SpanCounter counter = new SpanCounter(current[type], topology.width);
+		topology.forEachSpanInArea(centre, radius, counter);
+		return counter.count;
+	}
+
+	private static class SpanCounter implements SpanVisitor {
+		private final AtomicIntegerArray tree;
+		private final int width;
+		int count = 0;
+
+		SpanCounter(AtomicIntegerArray tree, int width) {
+			this.tree = tree;
+			this.width = width;
+		}
+
+		@Override
+		public void visit(int row, int fromX, int toX) {
+			int offset = row * 2 * width;
+			int l = fromX + width;
+			int r = toX + width + 1;
+			while (l < r) {
+				if ((l & 1) != 0)
+					count += tree.get(offset + l++);
+				if ((r & 1) != 0)
+					count += tree.get(offset + --r);
+				l >>= 1;
+				r >>= 1;
+			}
+		}
+	}
+}
@@ -0,0 +1,105 @@
+package org.cobweb.cobweb2.core;
+
+import java.util.Arrays;
+
+/**
+ * Dense array of the agents taking part in a simulation.
+ *
+ * <p>Agents stay in the order they were added. While a tick is in progress the registry does not
+ * change: agents added during the tick wait in a birth buffer and dead agents keep their slots until
+ * {@link #endTick()}, which appends the births and closes the gaps left by the dead in one pass.
+ * Iterating with {@link #size()} and {@link #get(int)} therefore visits the agents from oldest to
+ * newest, and during a tick visits the same agents no matter what happens to them.
+ */
+public class AgentRegistry {
+
+	private Agent[] slots = new Agent[64];
+
+	private int size = 0;
+
+	private Agent[] births = new Agent[16];
+
+	private int birthCount = 0;
+
+	private boolean ticking = false;
+
+	/**
+	 * Adds an agent. During a tick the agent is held back until the tick ends.
+	 */
+	public void add(Agent agent) {
+		if (agent.registrySlot != -1)
+			throw new IllegalArgumentException("Agent is already registered");
+
+		if (ticking) {
+			if (birthCount == births.length)
+				births = Arrays.copyOf(births, birthCount * 2);
+			births[birthCount++] = agent;
+		} else {
+			append(agent);
+		}
+	}
+
+	private void append(Agent agent) {
+		if (size == slots.length)
+			slots = Arrays.copyOf(slots, size * 2);
+		agent.registrySlot = size;
+		slots[size++] = agent;
+	}
+
+	/**
+	 * @return number of agents registered before the current tick started
+	 */
+	public int size() {
+		return size;
+	}
+
+	public Agent get(int slot) {
+		return slots[slot];
+	}
+
+	/**
+	 * Freezes the registry until endTick().
+	 */
+	public void beginTick() {
+		ticking = true;
+	}
+
+	/**
+	 * Adds agents born during the tick and removes agents that died.
+	 */
+	public void endTick() {
+		ticking = false;
+
+		for (int i = 0; i < birthCount; i++) {
+			append(births[i]);
+			births[i] = null;
+		}
+		birthCount = 0;
+
+		// Move the living agents forward over the dead ones, keeping their order
+		int live = 0;
+		for (int i = 0; i < size; i++) {
+			Agent agent = slots[i];
+			if (agent.isAlive()) {
+				agent.registrySlot = live;
+				slots[live++] = agent;
+			} else {
+				agent.registrySlot = -1;
+			}
+		}
+		for (int i = live; i < size; i++)
+			slots[i] = null;
+		size = live;
+	}
+
+	public void clear() {
+		for (int i = 0; i < size; i++) {
+			slots[i].registrySlot = -1;
+			slots[i] = null;
+		}
+		size = 0;
+		for (int i = 0; i < birthCount; i++)
+			births[i] = null;
+		birthCount = 0;
+	}
+}
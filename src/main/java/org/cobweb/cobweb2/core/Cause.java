@@ -1,6 +1,10 @@
 package org.cobweb.cobweb2.core;
 
 
+/**
+ * Reason for a change in an agent's energy or parameters.
+ * Causes carry no state, so code that reports a cause creates it once and shares it.
+ */
 public interface Cause {
 
 	public String getName();
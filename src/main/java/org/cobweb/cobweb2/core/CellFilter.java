@@ -0,0 +1,13 @@
+package org.cobweb.cobweb2.core;
+
+/**
+ * Picks cells to count, see {@link Topology#countInArea(int, float, CellFilter)}
+ */
+public interface CellFilter {
+
+	/**
+	 * @param cell cell index, see {@link Topology#getCell(Location)}
+	 * @return true if the cell should be counted
+	 */
+	public boolean accept(int cell);
+}
@@ -0,0 +1,12 @@
+package org.cobweb.cobweb2.core;
+
+/**
+ * Called for each cell of an area, see {@link Topology#forEachInArea(int, float, CellVisitor)}
+ */
+public interface CellVisitor {
+
+	/**
+	 * @param cell cell index, see {@link Topology#getCell(Location)}
+	 */
+	public void visit(int cell);
+}
@@ -4,4 +4,10 @@ public interface ControllerListener {
 
 	public abstract void beforeControl(Agent agent, ControllerInput cInput);
 
+	/**
+	 * @return whether beforeControl() does anything for the agent, so controllers can skip
+	 * building a ControllerInput when it does not
+	 */
+	public abstract boolean needsControlInput(Agent agent);
+
 }
@@ -0,0 +1,15 @@
+package org.cobweb.cobweb2.core;
+
+/**
+ * Called for each cell of an area along with its distance from the centre, see
+ * {@link Topology#forEachInArea(int, float, DistanceVisitor)}
+ */
+public interface DistanceVisitor {
+
+	/**
+	 * @param cell cell index, see {@link Topology#getCell(Location)}
+	 * @param distanceSquared squared distance from the centre, the same as
+	 * {@link Topology#getDistanceSquared(int, int)}
+	 */
+	public void visit(int cell, int distanceSquared);
+}
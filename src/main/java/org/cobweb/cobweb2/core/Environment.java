@@ -1,11 +1,17 @@
 package org.cobweb.cobweb2.core;
 
+import java.util.AbstractCollection;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.Hashtable;
-import java.util.Map;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
 
-import org.cobweb.util.ArrayUtilities;
+import org.cobweb.util.BitPlane;
 
 /**
  * The Environment class represents the simulation world; a collection of
@@ -21,8 +27,8 @@ import org.cobweb.util.ArrayUtilities;
  * Java code still has a nice java flavoured interface to the data.
  *
  * Another advantage of the accessor model is that the internal data need not be
- * in a format that is reasonable for external access. An flagArray of longs where
- * bitfields represent the location states makes sense in this context, because
+ * in a format that is reasonable for external access. Bit planes where each
+ * bit represents the state of one location make sense in this context, because
  * the accessors allow friendly access to this state information.
  *
  * Furthermore, the accessor is designed to be quite general; there should be no
@@ -44,30 +50,126 @@ public class Environment implements Updatable {
 	}
 
 	public void load(int width, int height, boolean wrap, boolean keepOldArray) {
+		Topology oldTopology = topology;
 		topology = new Topology(simulation, width, height, wrap);
 
-		if (keepOldArray) {
-			flagArray = ArrayUtilities.resizeArray(flagArray, topology.width, topology.height);
-			foodTypeArray = ArrayUtilities.resizeArray(foodTypeArray, topology.width, topology.height);
-		} else {
-			flagArray = new int[topology.width][topology.height];
-			foodTypeArray = new int[topology.width][topology.height];
+		int cells = topology.width * topology.height;
+		BitPlane oldStones = stonePlane;
+		BitPlane oldFood = foodPlane;
+		BitPlane oldDrops = dropPlane;
+		byte[] oldFoodTypes = foodTypes;
+		Drop[] oldDropArray = dropArray;
+		stonePlane = new BitPlane(cells);
+		foodPlane = new BitPlane(cells);
+		dropPlane = new BitPlane(cells);
+		foodTypes = new byte[cells];
+		dropArray = new Drop[cells];
+
+		if (oldTopology != null) {
+			for (int y = 0; y < Math.min(oldTopology.height, topology.height); y++) {
+				for (int x = 0; x < Math.min(oldTopology.width, topology.width); x++) {
+					int oldCell = y * oldTopology.width + x;
+					int cell = y * topology.width + x;
+					if (keepOldArray) {
+						if (oldStones.get(oldCell))
+							stonePlane.set(cell);
+						if (oldFood.get(oldCell))
+							foodPlane.set(cell);
+						if (oldDrops.get(oldCell))
+							dropPlane.set(cell);
+						foodTypes[cell] = oldFoodTypes[oldCell];
+					}
+					dropArray[cell] = oldDropArray[oldCell];
+				}
+			}
+		}
+
+		rebuildFoodIndex();
+		rescheduleDrops();
+
+		occupancy = new int[topology.width * topology.height];
+		if (densityIndex != null)
+			densityIndex.reset(topology);
+		for (int i = 0; i < occupantsEnd; i++) {
+			Agent a = occupants[i];
+			// Agents outside of a shrunk grid stay listed until they are killed off
+			if (a != null && a.getPosition() != null && onGrid(a.getPosition())) {
+				occupancy[cellIndex(a.getPosition())] = i + 1;
+				if (densityIndex != null)
+					densityIndex.add(a, cellIndex(a.getPosition()));
+			}
 		}
-		dropArray = ArrayUtilities.resizeArray(dropArray, topology.width, topology.height);
 	}
 
 
 	/**
-	 * The implementation uses a hash table to store agents, as we assume there
-	 * are many more locations than agents.
+	 * Agent occupancy of each location, indexed by y * width + x.
+	 * 0 means the location is empty, otherwise the value is one more than the
+	 * index of the agent in occupants.
+	 */
+	private int[] occupancy = new int[0];
+
+	/**
+	 * Agents on the grid. Entries never move while agents are being updated,
+	 * so agents on other threads can read occupancy without locking. Freed
+	 * entries are reused, and the list is compacted on update().
+	 */
+	private volatile Agent[] occupants = new Agent[64];
+
+	/**
+	 * Number of occupants entries in use or freed.
+	 */
+	private int occupantsEnd = 0;
+
+	private int occupantCount = 0;
+
+	private int[] freeOccupants = new int[16];
+
+	private int freeCount = 0;
+
+	private final Object occupantLock = new Object();
+
+	private final Collection<Agent> occupantView = new Occupants();
+
+	/**
+	 * Counts of agents by type and location, only kept once someone asks for it.
+	 */
+	private volatile AgentDensityIndex densityIndex;
+
+	/**
+	 * Location flags, one bit plane per flag, indexed like occupancy.
+	 */
+	private BitPlane stonePlane = new BitPlane(0);
+
+	private BitPlane foodPlane = new BitPlane(0);
+
+	private BitPlane dropPlane = new BitPlane(0);
+
+	private byte[] foodTypes = new byte[0];
+
+	/**
+	 * Number of 4-way neighbours with food, by cell.
 	 */
-	protected Map<Location, Agent> agentTable = new Hashtable<Location, Agent>();
+	private int[] foodNeighbours = new int[0];
+
+	/**
+	 * Cells without food next to at least one cell with food, where food can grow.
+	 */
+	private BitPlane foodFrontier = new BitPlane(0);
+
+	private FoodTypeIndex foodIndex = new FoodTypeIndex(0);
 
-	private int[][] flagArray = new int[0][0];
+	private Drop[] dropArray = new Drop[0];
 
-	private int[][] foodTypeArray = new int[0][0];
+	/**
+	 * Expiring drops by expiry time. Entries of drops removed early stay until they come up.
+	 */
+	private final PriorityQueue<ScheduledDrop> dropExpiry = new PriorityQueue<ScheduledDrop>();
 
-	protected Drop[][] dropArray = new Drop[0][0];
+	/**
+	 * Cells with drops that are not {@link ExpiringDrop}s, updated every step.
+	 */
+	private BitPlane tickingDrops = new BitPlane(0);
 
 	public static final int FLAG_STONE = 1;
 
@@ -77,50 +179,364 @@ public class Environment implements Updatable {
 
 	public static final int FLAG_DROP = 4;
 
+	/*
+	 * Methods that change a single location are not synchronized: the simulation holds the
+	 * Environment lock for the whole agent update, and agents on other threads may be calling
+	 * them at the same time on locations far apart. Other callers must hold the lock themselves.
+	 */
+
 	public void clearAgents() {
 		for (Agent a : new ArrayList<Agent>(getAgents())) {
 			a.die();
 		}
-		agentTable.clear();
+		clearOccupants();
+	}
+
+	/**
+	 * Forgets all agents on the grid without killing them.
+	 */
+	protected void clearOccupants() {
+		synchronized (occupantLock) {
+			Arrays.fill(occupancy, 0);
+			Arrays.fill(occupants, null);
+			if (densityIndex != null)
+				densityIndex.clear();
+			occupantsEnd = 0;
+			occupantCount = 0;
+			freeCount = 0;
+		}
+	}
+
+	private int cellIndex(Location l) {
+		return l.y * topology.width + l.x;
+	}
+
+	private boolean onGrid(Location l) {
+		return l.x >= 0 && l.y >= 0 && l.x < topology.width && l.y < topology.height;
 	}
 
 	public Agent getAgent(Location l) {
-		return agentTable.get(l);
+		return getAgent(l.x, l.y);
+	}
+
+	public Agent getAgent(int x, int y) {
+		return getAgent(y * topology.width + x);
+	}
+
+	/**
+	 * @param cell cell index, see {@link Topology#getCell(Location)}
+	 */
+	public Agent getAgent(int cell) {
+		int entry = occupancy[cell];
+		return entry == 0 ? null : occupants[entry - 1];
 	}
 
 	public synchronized Collection<Agent> getAgents() {
-		return agentTable.values();
+		return occupantView;
 	}
 
 	public int getAgentCount() {
-		return agentTable.keySet().size();
+		return occupantCount;
+	}
 
+	/**
+	 * Starts keeping count of agents by type and location, if not already doing so.
+	 * @return index of agents on the grid
+	 */
+	public AgentDensityIndex getDensityIndex() {
+		synchronized (occupantLock) {
+			if (densityIndex == null) {
+				densityIndex = new AgentDensityIndex(topology);
+				for (int cell = 0; cell < occupancy.length; cell++) {
+					Agent a = getAgent(cell);
+					if (a != null)
+						densityIndex.add(a, cell);
+				}
+			}
+			return densityIndex;
+		}
 	}
 
+	/**
+	 * @return the agent closest to the given one, or null if it is alone on the grid
+	 */
 	public Agent getClosestAgent(Agent agent) {
-	    Location l1 = agent.getPosition();
-        Agent closest = null;
-        double closestDistance = Math.sqrt(topology.width * topology.width + topology.height * topology.height); // Can't be farther than this
-        for (Map.Entry<Location, Agent> pair : agentTable.entrySet()) {
-            if (topology.getDistance(pair.getKey(), l1) < closestDistance)
-                closest = pair.getValue();
-        }
-        return closest;
-    }
+		return getClosestAgent(agent, ANY_TYPE);
+	}
+
+	/**
+	 * @param type agent type to look for, or {@link #ANY_TYPE}
+	 * @return the agent of the given type closest to the given one, or null if there is none
+	 */
+	public Agent getClosestAgent(Agent agent, int type) {
+		List<Agent> closest = getClosestAgents(agent, 1, type);
+		return closest.isEmpty() ? null : closest.get(0);
+	}
+
+	/**
+	 * Finds the agents closest to the given one by searching the grid in growing squares around
+	 * it. Agents at the same distance are ordered by location, top row first.
+	 *
+	 * @param agent agent to search around, not included in the result
+	 * @param count number of agents to find
+	 * @param type agent type to look for, or {@link #ANY_TYPE}
+	 * @return up to count agents, closest first
+	 */
+	public List<Agent> getClosestAgents(Agent agent, int count, int type) {
+		if (count <= 0)
+			return new ArrayList<Agent>();
+
+		ClosestAgents search = new ClosestAgents(topology.getCell(agent.getPosition()), agent, count, type);
+		for (int ring = 0; topology.forEachInRing(search.centre, ring, search); ring++) {
+			// Cells in later rings are at least ring + 1 away
+			if (search.found == count && (ring + 1) * (ring + 1) > search.distances[count - 1])
+				break;
+		}
+		return search.getResult();
+	}
+
+	public static final int ANY_TYPE = -1;
+
+	/**
+	 * Keeps the closest agents seen so far, sorted by distance and then cell.
+	 */
+	private class ClosestAgents implements CellVisitor {
+		final int centre;
+		private final Agent agent;
+		private final int type;
+		final int[] distances;
+		private final int[] cells;
+		private final Agent[] agents;
+		int found = 0;
+
+		ClosestAgents(int centre, Agent agent, int count, int type) {
+			this.centre = centre;
+			this.agent = agent;
+			this.type = type;
+			distances = new int[count];
+			cells = new int[count];
+			agents = new Agent[count];
+		}
+
+		@Override
+		public void visit(int cell) {
+			Agent other = getAgent(cell);
+			if (other == null || other == agent || (type != ANY_TYPE && other.getType() != type))
+				return;
+
+			int distance = topology.getDistanceSquared(centre, cell);
+			// Wrapping grids can show the same cell more than once
+			for (int i = 0; i < found; i++) {
+				if (cells[i] == cell)
+					return;
+			}
+
+			int i = found;
+			if (i == agents.length) {
+				if (!closer(distance, cell, agents.length - 1))
+					return;
+				i--;
+			} else {
+				found++;
+			}
+			for (; i > 0 && closer(distance, cell, i - 1); i--) {
+				distances[i] = distances[i - 1];
+				cells[i] = cells[i - 1];
+				agents[i] = agents[i - 1];
+			}
+			distances[i] = distance;
+			cells[i] = cell;
+			agents[i] = other;
+		}
+
+		private boolean closer(int distance, int cell, int index) {
+			return distance < distances[index] || (distance == distances[index] && cell < cells[index]);
+		}
+
+		List<Agent> getResult() {
+			return Arrays.asList(Arrays.copyOf(agents, found));
+		}
+	}
 
 	public final void setAgent(Location l, Agent a) {
-		if (a != null)
-			agentTable.put(l, a);
-		else
-			agentTable.remove(l);
+		if (!onGrid(l)) {
+			if (a != null)
+				throw new IllegalArgumentException("Location is not on the grid: " + l);
+			removeOffgridOccupant(l);
+			return;
+		}
+
+		int cell = cellIndex(l);
+		int entry = occupancy[cell];
+		if (a == null) {
+			if (entry != 0) {
+				if (densityIndex != null)
+					densityIndex.remove(occupants[entry - 1], cell);
+				occupancy[cell] = 0;
+				releaseOccupant(entry - 1);
+			}
+		} else if (entry != 0) {
+			synchronized (occupantLock) {
+				if (densityIndex != null) {
+					densityIndex.remove(occupants[entry - 1], cell);
+					densityIndex.add(a, cell);
+				}
+				occupants[entry - 1] = a;
+			}
+		} else {
+			occupancy[cell] = claimOccupant(a) + 1;
+			if (densityIndex != null)
+				densityIndex.add(a, cell);
+		}
+	}
+
+	/**
+	 * Moves an agent between locations. Same as clearing the old location and
+	 * setting the new one, but keeps the agent's entry so no locking is needed.
+	 */
+	public final void moveAgent(Location from, Location to, Agent a) {
+		if (onGrid(from) && onGrid(to)) {
+			int fromCell = cellIndex(from);
+			int toCell = cellIndex(to);
+			int entry = occupancy[fromCell];
+			if (entry != 0 && occupants[entry - 1] == a) {
+				if (fromCell == toCell)
+					return;
+				if (occupancy[toCell] == 0) {
+					occupancy[fromCell] = 0;
+					occupancy[toCell] = entry;
+					if (densityIndex != null)
+						densityIndex.move(a, fromCell, toCell);
+					return;
+				}
+			}
+		}
+		setAgent(from, null);
+		setAgent(to, a);
+	}
+
+	private int claimOccupant(Agent a) {
+		synchronized (occupantLock) {
+			int index;
+			if (freeCount > 0) {
+				index = freeOccupants[--freeCount];
+			} else {
+				if (occupantsEnd == occupants.length)
+					occupants = Arrays.copyOf(occupants, occupantsEnd * 2);
+				index = occupantsEnd++;
+			}
+			occupants[index] = a;
+			occupantCount++;
+			return index;
+		}
 	}
 
-	private int getLocationBits(Location l) {
-		return flagArray[l.x][l.y];
+	private void releaseOccupant(int index) {
+		synchronized (occupantLock) {
+			occupants[index] = null;
+			if (freeCount == freeOccupants.length)
+				freeOccupants = Arrays.copyOf(freeOccupants, freeCount * 2);
+			freeOccupants[freeCount++] = index;
+			occupantCount--;
+		}
+	}
+
+	/**
+	 * Removes an agent left outside of the grid after it was resized.
+	 */
+	private void removeOffgridOccupant(Location l) {
+		for (int i = 0; i < occupantsEnd; i++) {
+			Agent a = occupants[i];
+			if (a != null && l.equals(a.getPosition())) {
+				releaseOccupant(i);
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Closes the gaps left in occupants by agents that were removed.
+	 */
+	private void compactOccupants() {
+		if (freeCount == 0)
+			return;
+
+		Agent[] list = occupants;
+		int write = 0;
+		for (int read = 0; read < occupantsEnd; read++) {
+			Agent a = list[read];
+			if (a == null)
+				continue;
+			if (read != write) {
+				list[write] = a;
+				list[read] = null;
+				Location l = a.getPosition();
+				if (l != null && onGrid(l) && occupancy[cellIndex(l)] == read + 1)
+					occupancy[cellIndex(l)] = write + 1;
+			}
+			write++;
+		}
+		occupantsEnd = write;
+		freeCount = 0;
+	}
+
+	private class Occupants extends AbstractCollection<Agent> {
+
+		@Override
+		public Iterator<Agent> iterator() {
+			return new Iterator<Agent>() {
+				private final Agent[] list = occupants;
+				private final int end = occupantsEnd;
+				private int next = skipEmpty(0);
+
+				private int skipEmpty(int from) {
+					while (from < end && list[from] == null)
+						from++;
+					return from;
+				}
+
+				@Override
+				public boolean hasNext() {
+					return next < end;
+				}
+
+				@Override
+				public Agent next() {
+					if (next >= end)
+						throw new NoSuchElementException();
+					Agent result = list[next];
+					next = skipEmpty(next + 1);
+					return result;
+				}
+
+				@Override
+				public void remove() {
+					throw new UnsupportedOperationException();
+				}
+			};
+		}
+
+		@Override
+		public int size() {
+			return occupantCount;
+		}
 	}
 
-	private void setLocationBits(Location l, int bits) {
-		flagArray[l.x][l.y] = bits;
+	private BitPlane getPlane(int flag) {
+		switch (flag) {
+			case FLAG_STONE:
+				return stonePlane;
+			case FLAG_FOOD:
+				return foodPlane;
+			case FLAG_DROP:
+				return dropPlane;
+			default:
+				throw new IllegalArgumentException("Flag is not stored in a plane: " + flag);
+		}
+	}
+
+	private boolean hasAnyFlag(int cell) {
+		return stonePlane.get(cell) || foodPlane.get(cell) || dropPlane.get(cell);
 	}
 
 	/**
@@ -129,68 +545,160 @@ public class Environment implements Updatable {
 	 * does nothing when (0,0) is a stone
 	 */
 	protected void setFlag(Location l, int flag, boolean state) {
-		int flagBits = 1 << (flag - 1);
-
-		assert (!(state && getLocationBits(l) != 0)) : "Attempted to set flag when location flags non-zero: " + getLocationBits(l);
-		assert (!(!state && (getLocationBits(l) & flagBits) == 0)) : "Attempting to unset an unset flag" + flagBits;
+		int cell = cellIndex(l);
+		BitPlane plane = getPlane(flag);
 
-		int newValue = getLocationBits(l);
+		assert (!(state && hasAnyFlag(cell))) : "Attempted to set flag when location flags non-zero";
+		assert (!(!state && !plane.get(cell))) : "Attempting to unset an unset flag " + flag;
 
 		if (state)
-			newValue |= flagBits;
+			plane.set(cell);
 		else
-			newValue &= ~flagBits;
-
-		setLocationBits(l, newValue);
+			plane.clear(cell);
 	}
 
 
 	protected boolean testFlag(Location l, int flag) {
-		int flagBits = 1 << (flag - 1);
-		return (getLocationBits(l) & flagBits) != 0;
+		return getPlane(flag).get(cellIndex(l));
 	}
 
 	public int getFoodType(Location l) {
-		return foodTypeArray[l.x][l.y];
+		return foodTypes[cellIndex(l)];
 	}
 
-	public synchronized void addFood(Location l, int type) {
+	public int getFoodType(int cell) {
+		return foodTypes[cell];
+	}
+
+	public void addFood(Location l, int type) {
 		if (hasStone(l)) {
 			throw new IllegalArgumentException("stone here already");
 		}
+		int cell = cellIndex(l);
+		boolean hadFood = foodPlane.get(cell);
+		if (hadFood)
+			foodIndex.remove(cell, foodTypes[cell]);
 		setFlag(l, Environment.FLAG_FOOD, true);
-		foodTypeArray[l.x][l.y] = type;
+		foodTypes[cell] = (byte) type;
+		foodIndex.add(cell, type);
+		if (!hadFood)
+			foodAdded(cell);
 	}
 
 	public synchronized void clearFood() {
-		clearFlag(Environment.FLAG_FOOD);
+		foodPlane.clearAll();
+		rebuildFoodIndex();
 	}
 
-	public synchronized void removeFood(Location l) {
+	public void removeFood(Location l) {
+		int cell = cellIndex(l);
+		boolean hadFood = foodPlane.get(cell);
 		setFlag(l, Environment.FLAG_FOOD, false);
+		if (hadFood) {
+			foodIndex.remove(cell, foodTypes[cell]);
+			foodRemoved(cell);
+		}
+	}
+
+	/**
+	 * @return cells with food of the given type, in cell order
+	 */
+	public int[] getFoodCells(int type) {
+		return foodIndex.getSortedCells(type);
+	}
+
+	private void foodAdded(int cell) {
+		foodFrontier.clear(cell);
+		int count = topology.getReverseAdjacentCount4way(cell);
+		for (int i = 0; i < count; i++) {
+			int n = topology.getReverseAdjacentCell4way(cell, i);
+			if (foodNeighbours[n]++ == 0 && !foodPlane.get(n))
+				foodFrontier.set(n);
+		}
+	}
+
+	private void foodRemoved(int cell) {
+		int count = topology.getReverseAdjacentCount4way(cell);
+		for (int i = 0; i < count; i++) {
+			int n = topology.getReverseAdjacentCell4way(cell, i);
+			if (--foodNeighbours[n] == 0)
+				foodFrontier.clear(n);
+		}
+		if (foodNeighbours[cell] > 0)
+			foodFrontier.set(cell);
+	}
+
+	private void rebuildFoodIndex() {
+		int cells = topology.width * topology.height;
+		foodNeighbours = new int[cells];
+		foodFrontier = new BitPlane(cells);
+		foodIndex = new FoodTypeIndex(cells);
+		for (int cell = foodPlane.nextSetBit(0); cell >= 0; cell = foodPlane.nextSetBit(cell + 1)) {
+			foodIndex.add(cell, foodTypes[cell]);
+			foodAdded(cell);
+		}
+	}
+
+	/**
+	 * Finds cells where food could grow: cells without food that have food in at least one of
+	 * their 4-way neighbours. The cell may still hold a stone, drop or agent.
+	 *
+	 * @param fromCell first cell index to check
+	 * @return index of the first such cell at or after fromCell, or -1 if there is none
+	 */
+	public int nextFoodFrontierCell(int fromCell) {
+		return foodFrontier.nextSetBit(fromCell);
 	}
 
 	public boolean hasFood(Location l) {
-		return testFlag(l, Environment.FLAG_FOOD);
+		return foodPlane.get(cellIndex(l));
+	}
+
+	public boolean hasFood(int cell) {
+		return foodPlane.get(cell);
+	}
+
+	/**
+	 * @return number of locations with food
+	 */
+	public int countFood() {
+		return foodPlane.count();
+	}
+
+	/**
+	 * @return number of locations with food of the given type
+	 */
+	public int countFood(int type) {
+		return foodIndex.count(type);
+	}
+
+	/**
+	 * @return number of locations with stones
+	 */
+	public int countStones() {
+		return stonePlane.count();
 	}
 
 	protected void clearFlag(int flag) {
-		for (int x = 0; x < topology.width; ++x) {
-			for (int y = 0; y < topology.height; ++y) {
-				Location currentPos = new Location(x, y);
-
-				if (testFlag(currentPos, flag)) {
-					if (flag == FLAG_DROP) {
-						removeDrop(currentPos);
-					} else {
-						setFlag(currentPos, flag, false);
-					}
-				}
+		if (flag == FLAG_DROP) {
+			for (int cell = dropPlane.nextSetBit(0); cell >= 0; cell = dropPlane.nextSetBit(cell + 1)) {
+				removeDrop(cellLocation(cell));
 			}
+			synchronized (dropExpiry) {
+				dropExpiry.clear();
+			}
+		} else {
+			getPlane(flag).clearAll();
+			if (flag == FLAG_FOOD)
+				rebuildFoodIndex();
 		}
 	}
 
-	public synchronized void addStone(Location l) {
+	private Location cellLocation(int cell) {
+		return new Location(cell % topology.width, cell / topology.width);
+	}
+
+	public void addStone(Location l) {
 		if (hasAgent(l)) {
 			return;
 		}
@@ -204,14 +712,14 @@ public class Environment implements Updatable {
 	}
 
 	public synchronized void clearStones() {
-		clearFlag(Environment.FLAG_STONE);
+		stonePlane.clearAll();
 	}
 
 	public boolean hasAnythingAt(Location l) {
-		return getLocationBits(l) != 0 || hasAgent(l);
+		return hasAnyFlag(cellIndex(l)) || hasAgent(l);
 	}
 
-	public synchronized void removeStone(Location l) {
+	public void removeStone(Location l) {
 		setFlag(l, Environment.FLAG_STONE, false);
 	}
 
@@ -222,29 +730,132 @@ public class Environment implements Updatable {
 
 		setFlag(loc, Environment.FLAG_DROP, true);
 
-		dropArray[loc.x][loc.y] = d;
+		int cell = cellIndex(loc);
+		dropArray[cell] = d;
+		scheduleDrop(cell, d);
+	}
+
+	private void scheduleDrop(int cell, Drop d) {
+		if (d instanceof ExpiringDrop) {
+			synchronized (dropExpiry) {
+				dropExpiry.add(new ScheduledDrop(((ExpiringDrop) d).getExpiryTime(), cell, d));
+			}
+		} else {
+			tickingDrops.set(cell);
+		}
 	}
 
 	public void removeDrop(Location loc) {
 		// Drop.prepareRemove should not end up recursing into this again!
 		if (hasDrop(loc)) {
-			Drop drop = dropArray[loc.x][loc.y];
+			int cell = cellIndex(loc);
+			Drop drop = dropArray[cell];
 			drop.prepareRemove();
 			setFlag(loc, FLAG_DROP, false);
-			dropArray[loc.x][loc.y] = null;
+			dropArray[cell] = null;
+			tickingDrops.clear(cell);
+			// Expiry entry is dropped when it comes up
+		}
+	}
+
+	/**
+	 * Updates the drops that need it this step: expiring drops that are due, and every other
+	 * drop. Drops are updated column by column, the order a scan of the whole grid would use.
+	 */
+	protected void updateDrops() {
+		long time = simulation.getTime();
+		List<ScheduledDrop> due = new ArrayList<ScheduledDrop>();
+
+		synchronized (dropExpiry) {
+			while (!dropExpiry.isEmpty() && dropExpiry.peek().time <= time) {
+				ScheduledDrop s = dropExpiry.poll();
+				if (dropArray[s.cell] == s.drop && dropPlane.get(s.cell))
+					due.add(s);
+			}
+		}
+		for (int cell = tickingDrops.nextSetBit(0); cell >= 0; cell = tickingDrops.nextSetBit(cell + 1)) {
+			due.add(new ScheduledDrop(time, cell, dropArray[cell]));
+		}
+		if (due.isEmpty())
+			return;
+
+		final int width = topology.width;
+		final int height = topology.height;
+		Collections.sort(due, new Comparator<ScheduledDrop>() {
+			@Override
+			public int compare(ScheduledDrop a, ScheduledDrop b) {
+				int keyA = (a.cell % width) * height + a.cell / width;
+				int keyB = (b.cell % width) * height + b.cell / width;
+				return Integer.compare(keyA, keyB);
+			}
+		});
+
+		for (ScheduledDrop s : due) {
+			if (dropArray[s.cell] != s.drop || !dropPlane.get(s.cell))
+				continue;
+			s.drop.update();
+			// Still around, check again next step
+			if (dropArray[s.cell] == s.drop && dropPlane.get(s.cell) && s.drop instanceof ExpiringDrop) {
+				synchronized (dropExpiry) {
+					dropExpiry.add(new ScheduledDrop(time + 1, s.cell, s.drop));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Starts drop scheduling over from what is on the grid.
+	 */
+	private void rescheduleDrops() {
+		synchronized (dropExpiry) {
+			dropExpiry.clear();
+		}
+		tickingDrops = new BitPlane(dropPlane.size());
+		for (int cell = dropPlane.nextSetBit(0); cell >= 0; cell = dropPlane.nextSetBit(cell + 1)) {
+			if (dropArray[cell] != null)
+				scheduleDrop(cell, dropArray[cell]);
+		}
+	}
+
+	private static class ScheduledDrop implements Comparable<ScheduledDrop> {
+		final long time;
+		final int cell;
+		final Drop drop;
+
+		ScheduledDrop(long time, int cell, Drop drop) {
+			this.time = time;
+			this.cell = cell;
+			this.drop = drop;
+		}
+
+		@Override
+		public int compareTo(ScheduledDrop o) {
+			return Long.compare(time, o.time);
 		}
 	}
 
 	public Drop getDrop(Location loc) {
-		return dropArray[loc.x][loc.y];
+		return dropArray[cellIndex(loc)];
+	}
+
+	public Drop getDrop(int cell) {
+		return dropArray[cell];
 	}
 
 	public boolean hasDrop(Location loc) {
-		return testFlag(loc, FLAG_DROP);
+		return dropPlane.get(cellIndex(loc));
+	}
+
+	public boolean hasDrop(int cell) {
+		return dropPlane.get(cell);
 	}
 
 	public boolean hasStone(Location l) {
-		return testFlag(l, Environment.FLAG_STONE);
+		return stonePlane.get(cellIndex(l));
+	}
+
+	public boolean hasStone(int cell) {
+		return stonePlane.get(cell);
 	}
 
 	public boolean hasAgent(Location l) {
@@ -268,7 +879,7 @@ public class Environment implements Updatable {
 
 	}
 
-	public synchronized void removeAgent(Location l) {
+	public void removeAgent(Location l) {
 		Agent a = getAgent(l);
 		if (a != null)
 			a.die();
@@ -276,7 +887,7 @@ public class Environment implements Updatable {
 
 	@Override
 	public synchronized void update() {
-		// nothing
+		compactOccupants();
 	}
 
 	public Collection<Location> getNearLocations(Location position) {
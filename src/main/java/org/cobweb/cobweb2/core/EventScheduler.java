@@ -0,0 +1,183 @@
+package org.cobweb.cobweb2.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Runs actions at a given future tick, so plugins waiting on a deadline do not need to check every
+ * agent every tick.
+ *
+ * <p>Events due within the next {@value #WHEEL_SIZE} ticks are kept in a timing wheel, one list per
+ * tick; later events wait in a heap and move into the wheel as their tick comes near. Running a tick
+ * only looks at the events due on it.
+ *
+ * <p>An event can belong to an agent. It is dropped without running if the agent has died by the
+ * time it is due.
+ *
+ * <p>Events may be scheduled from agent updates running on several threads. Events due on the same
+ * tick run in order of their owner's id, then in the order they were scheduled, so the order does
+ * not depend on how tile updates were interleaved.
+ */
+public class EventScheduler {
+
+	private static final int WHEEL_BITS = 8;
+
+	private static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+
+	private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private List<Event>[] wheel = new List[WHEEL_SIZE];
+
+	private final PriorityQueue<Event> later = new PriorityQueue<Event>();
+
+	/**
+	 * First tick whose events have not been run yet.
+	 */
+	private long next = 0;
+
+	private long sequence = 0;
+
+	private List<Event> running = new ArrayList<Event>();
+
+	public EventScheduler() {
+		for (int i = 0; i < WHEEL_SIZE; i++)
+			wheel[i] = new ArrayList<Event>();
+	}
+
+	/**
+	 * Schedules an action. Actions for a tick that has already been run are run on the next tick.
+	 *
+	 * @param time tick to run the action at
+	 * @param owner agent the action is for, null if it should run regardless of any agent
+	 * @param action action to run
+	 * @return handle that can cancel the event
+	 */
+	public synchronized Event schedule(long time, Agent owner, Runnable action) {
+		Event event = new Event(Math.max(time, next), sequence++, owner, action);
+		enqueue(event);
+		return event;
+	}
+
+	private void enqueue(Event event) {
+		if (event.time < next + WHEEL_SIZE)
+			wheel[(int) (event.time & WHEEL_MASK)].add(event);
+		else
+			later.add(event);
+	}
+
+	/**
+	 * Runs the events due at or before the given tick that have not been run yet.
+	 */
+	public void runEvents(long time) {
+		while (next <= time) {
+			List<Event> due;
+			synchronized (this) {
+				int slot = (int) (next & WHEEL_MASK);
+				due = wheel[slot];
+				wheel[slot] = running;
+				next++;
+
+				// The slot just emptied now stands for the tick WHEEL_SIZE - 1 ticks ahead
+				while (!later.isEmpty() && later.peek().time < next + WHEEL_SIZE)
+					enqueue(later.poll());
+			}
+
+			if (due.size() > 1)
+				Collections.sort(due, RUN_ORDER);
+			for (Event event : due) {
+				if (!event.cancelled && (event.owner == null || event.owner.isAlive()))
+					event.action.run();
+			}
+			due.clear();
+			running = due;
+		}
+	}
+
+	/**
+	 * Moves the clock to a different tick. Pending events keep the number of ticks left until they
+	 * are due.
+	 *
+	 * @param time tick that will be run next
+	 */
+	public synchronized void setTime(long time) {
+		List<Event> pending = new ArrayList<Event>(later);
+		later.clear();
+		for (int i = 0; i < WHEEL_SIZE; i++) {
+			pending.addAll(wheel[i]);
+			wheel[i].clear();
+		}
+
+		long offset = time - next;
+		next = time;
+		for (Event event : pending) {
+			event.time += offset;
+			enqueue(event);
+		}
+	}
+
+	/**
+	 * Drops all pending events.
+	 */
+	public synchronized void clear() {
+		later.clear();
+		for (int i = 0; i < WHEEL_SIZE; i++)
+			wheel[i].clear();
+	}
+
+	/**
+	 * @return number of pending events, including cancelled ones that have not come up yet
+	 */
+	public synchronized int size() {
+		int size = later.size();
+		for (int i = 0; i < WHEEL_SIZE; i++)
+			size += wheel[i].size();
+		return size;
+	}
+
+	private static final Comparator<Event> RUN_ORDER = new Comparator<Event>() {
+		@Override
+		public int compare(Event a, Event b) {
+			int ownerA = a.owner == null ? 0 : a.owner.id;
+			int ownerB = b.owner == null ? 0 : b.owner.id;
+			if (ownerA != ownerB)
+				return ownerA < ownerB ? -1 : 1;
+			return Long.compare(a.sequence, b.sequence);
+		}
+	};
+
+	/**
+	 * Scheduled action.
+	 */
+	public static class Event implements Comparable<Event> {
+		private long time;
+		private final long sequence;
+		private final Agent owner;
+		private final Runnable action;
+		private volatile boolean cancelled = false;
+
+		Event(long time, long sequence, Agent owner, Runnable action) {
+			this.time = time;
+			this.sequence = sequence;
+			this.owner = owner;
+			this.action = action;
+		}
+
+		/**
+		 * Stops the action from running. Does nothing if it has already run.
+		 */
+		public void cancel() {
+			cancelled = true;
+		}
+
+		@Override
+		public int compareTo(Event o) {
+			if (time != o.time)
+				return time < o.time ? -1 : 1;
+			return Long.compare(sequence, o.sequence);
+		}
+	}
+}
@@ -0,0 +1,13 @@
+package org.cobweb.cobweb2.core;
+
+/**
+ * Drop that does nothing on update() until it expires. The environment only
+ * updates it from its expiry time on, instead of at every step.
+ */
+public interface ExpiringDrop extends Drop {
+
+	/**
+	 * @return first simulation time at which update() needs to be called
+	 */
+	public long getExpiryTime();
+}
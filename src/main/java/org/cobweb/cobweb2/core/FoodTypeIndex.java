@@ -0,0 +1,93 @@
+package org.cobweb.cobweb2.core;
+
+import java.util.Arrays;
+
+/**
+ * Cells with food, listed by food type. Cells are removed by moving the last cell of the list
+ * into their place, so the lists are in no particular order.
+ */
+class FoodTypeIndex {
+
+	/**
+	 * Position of each food cell in the list of its type.
+	 */
+	private int[] slots;
+
+	private volatile FoodCells[] types = new FoodCells[0];
+
+	FoodTypeIndex(int cells) {
+		slots = new int[cells];
+	}
+
+	void add(int cell, int type) {
+		getCells(type).add(cell);
+	}
+
+	void remove(int cell, int type) {
+		getCells(type).remove(cell);
+	}
+
+	/**
+	 * @return number of cells with food of the given type
+	 */
+	int count(int type) {
+		FoodCells[] current = types;
+		return type < current.length ? current[type].size : 0;
+	}
+
+	/**
+	 * @return cells with food of the given type, in cell order
+	 */
+	int[] getSortedCells(int type) {
+		FoodCells[] current = types;
+		if (type >= current.length)
+			return new int[0];
+		int[] result = current[type].toArray();
+		Arrays.sort(result);
+		return result;
+	}
+
+	private FoodCells getCells(int type) {
+		FoodCells[] current = types;
+		if (type < current.length)
+			return current[type];
+		return addType(type);
+	}
+
+	private synchronized FoodCells addType(int type) {
+		FoodCells[] current = types;
+		if (type >= current.length) {
+			current = Arrays.copyOf(current, type + 1);
+			for (int t = types.length; t < current.length; t++)
+				current[t] = new FoodCells();
+			types = current;
+		}
+		return current[type];
+	}
+
+	/**
+	 * Agents on different threads may eat food of the same type, so each list is locked on its own.
+	 */
+	private class FoodCells {
+		private int[] cells = new int[16];
+		private int size = 0;
+
+		synchronized void add(int cell) {
+			if (size == cells.length)
+				cells = Arrays.copyOf(cells, size * 2);
+			slots[cell] = size;
+			cells[size++] = cell;
+		}
+
+		synchronized void remove(int cell) {
+			int slot = slots[cell];
+			int last = cells[--size];
+			cells[slot] = last;
+			slots[last] = slot;
+		}
+
+		synchronized int[] toArray() {
+			return Arrays.copyOf(cells, size);
+		}
+	}
+}
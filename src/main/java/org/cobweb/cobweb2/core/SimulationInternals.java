@@ -15,7 +15,23 @@ public interface SimulationInternals extends StatePluginSource, SimulationTimeSp
 
 	public StateParameter getStateParameter(String name);
 
+	/**
+	 * @return state parameters in the same order as getStatePluginKeys()
+	 */
+	public StateParameter[] getStateParameters();
+
 	public AgentSimilarityCalculator getSimilarityCalculator();
 
 	public AgentListener getAgentListener();
+
+	/**
+	 * @return scheduler for actions that should run at a later tick
+	 */
+	public EventScheduler getScheduler();
+
+	/**
+	 * @return update slot of the tile being updated by the current thread, -1 outside of tile
+	 * updates; see {@link SlottedStats}
+	 */
+	public int getUpdateSlot();
 }
@@ -0,0 +1,24 @@
+package org.cobweb.cobweb2.core;
+
+/**
+ * Statistics that agent updates add to.
+ *
+ * <p>When agents are updated tile by tile on several threads, each tile is an update slot. Data
+ * gathered during a tile update is kept in that tile's slot, without locking, and added to the
+ * totals in slot order once all updates of the tick are done. Totals then come out the same
+ * whatever the number of threads. Data gathered outside of tile updates goes straight to the totals.
+ */
+public interface SlottedStats {
+
+	/**
+	 * @param sim source of the current update slot, see {@link SimulationInternals#getUpdateSlot()}
+	 * @param slots number of update slots, 0 when agents are updated one by one
+	 */
+	public void setUpdateSlots(SimulationInternals sim, int slots);
+
+	/**
+	 * Adds the data gathered in each update slot to the totals, in slot order, and empties the slots.
+	 * Called on the simulation thread after the agent updates of a tick.
+	 */
+	public void mergeUpdateSlots();
+}
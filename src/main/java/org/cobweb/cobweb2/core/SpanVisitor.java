@@ -0,0 +1,14 @@
+package org.cobweb.cobweb2.core;
+
+/**
+ * Called for each row span of an area, see {@link Topology#forEachSpanInArea(int, float, SpanVisitor)}
+ */
+public interface SpanVisitor {
+
+	/**
+	 * @param row y coordinate of the span
+	 * @param fromX first x coordinate in the span
+	 * @param toX last x coordinate in the span, inclusive
+	 */
+	public void visit(int row, int fromX, int toX);
+}
@@ -1,6 +1,7 @@
 package org.cobweb.cobweb2.core;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -13,15 +14,170 @@ public class Topology {
 	public final int height;
 	private final boolean wrap;
 
+	/**
+	 * Neighbour of each cell in each direction, indexed by cell * 8 + direction index,
+	 * -1 where the neighbour would be off the grid.
+	 */
+	private final int[] neighbours;
+
+	/**
+	 * Cells that have a given cell as one of their 4-way neighbours. Those of cell c are
+	 * reverseNeighbours4[reverseStart4[c]] up to reverseNeighbours4[reverseStart4[c + 1] - 1].
+	 * Usually the same as the 4-way neighbours of c, but the flip at the top and bottom edges of a
+	 * wrapping grid with an odd width is one-sided.
+	 */
+	private final int[] reverseStart4;
+
+	private final int[] reverseNeighbours4;
+
 	public Topology(RandomSource randomSource, int width, int height, boolean wrap) {
 		this.randomSource = randomSource;
 		this.width = width;
 		this.height = height;
 		this.wrap = wrap;
+
+		neighbours = new int[width * height * DIRECTION_COUNT];
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				int cell = y * width + x;
+				for (int d = 0; d < DIRECTION_COUNT; d++) {
+					neighbours[cell * DIRECTION_COUNT + d] = computeAdjacentCell(x, y, DIRECTIONS[d]);
+				}
+			}
+		}
+
+		int cells = width * height;
+		reverseStart4 = new int[cells + 1];
+		for (int cell = 0; cell < cells; cell++) {
+			for (int d = 0; d < 4; d++) {
+				int n = neighbours[cell * DIRECTION_COUNT + d];
+				if (n >= 0)
+					reverseStart4[n + 1]++;
+			}
+		}
+		for (int cell = 0; cell < cells; cell++) {
+			reverseStart4[cell + 1] += reverseStart4[cell];
+		}
+		reverseNeighbours4 = new int[reverseStart4[cells]];
+		int[] fill = Arrays.copyOf(reverseStart4, cells);
+		for (int cell = 0; cell < cells; cell++) {
+			for (int d = 0; d < 4; d++) {
+				int n = neighbours[cell * DIRECTION_COUNT + d];
+				if (n >= 0)
+					reverseNeighbours4[fill[n]++] = cell;
+			}
+		}
+	}
+
+	/**
+	 * Does the wrap/flip arithmetic for one step; used to fill the neighbour table.
+	 */
+	private int computeAdjacentCell(int x, int y, Direction direction) {
+		x += direction.x;
+		y += direction.y;
+
+		if (wrap) {
+			x = (x + width) % width;
+			boolean flip = false;
+			if (y < 0) {
+				y = -y - 1;
+				flip = true;
+			} else if (y >= height) {
+				y = height * 2 - y - 1;
+				flip = true;
+			}
+			if (flip) {
+				x = (x + width / 2) % width;
+			}
+		} else {
+			if ( x < 0 || x >= width || y < 0 || y >= height)
+				return -1;
+		}
+		return y * width + x;
+	}
+
+	/**
+	 * @return index of the cell at the given location, y * width + x
+	 */
+	public int getCell(Location l) {
+		return l.y * width + l.x;
+	}
+
+	public int getCellX(int cell) {
+		return cell % width;
+	}
+
+	public int getCellY(int cell) {
+		return cell / width;
+	}
+
+	/**
+	 * @param cell cell index
+	 * @param direction direction index, see {@link #getDirectionIndex(Direction)}
+	 * @return index of the neighbouring cell, or -1 if it is off the grid
+	 */
+	public int getAdjacentCell(int cell, int direction) {
+		return neighbours[cell * DIRECTION_COUNT + direction];
+	}
+
+	/**
+	 * @return number of cells that have the given cell as a 4-way neighbour
+	 */
+	public int getReverseAdjacentCount4way(int cell) {
+		return reverseStart4[cell + 1] - reverseStart4[cell];
+	}
+
+	/**
+	 * @param cell cell index
+	 * @param i index between 0 and {@link #getReverseAdjacentCount4way(int)}
+	 * @return a cell that has the given cell as a 4-way neighbour
+	 */
+	public int getReverseAdjacentCell4way(int cell, int i) {
+		return reverseNeighbours4[reverseStart4[cell] + i];
+	}
+
+	/**
+	 * Checks whether stepping from a cell crosses the top or bottom edge of a
+	 * wrapping grid, which turns whatever crosses it around.
+	 */
+	public boolean isAdjacentFlipped(int cell, int direction) {
+		if (!wrap)
+			return false;
+		int y = cell / width + DIRECTIONS[direction].y;
+		return y < 0 || y >= height;
+	}
+
+	/**
+	 * @return index of the direction faced after stepping from cell in the given direction
+	 */
+	public int getAdjacentDirection(int cell, int direction) {
+		return isAdjacentFlipped(cell, direction) ? REVERSE[direction] : direction;
+	}
+
+	/**
+	 * @return index of direction in {@link #ALL_8_WAY}, or -1 for {@link #NONE}
+	 */
+	public static int getDirectionIndex(Direction direction) {
+		return DIRECTION_INDEX[(direction.y + 1) * 3 + direction.x + 1];
+	}
+
+	public static Direction getDirection(int index) {
+		return DIRECTIONS[index];
+	}
+
+	public static int getReverseDirection(int index) {
+		return REVERSE[index];
 	}
 
 	public Location getAdjacent(Location location, Direction direction) {
-		return getAdjacent(new LocationDirection(location, direction));
+		int d = getDirectionIndex(direction);
+		if (d < 0 || !isValidLocation(location))
+			return getAdjacent(new LocationDirection(location, direction));
+
+		int cell = getAdjacentCell(getCell(location), d);
+		if (cell < 0)
+			return null;
+		return new Location(getCellX(cell), getCellY(cell));
 	}
 
 	public double getDistance(Location from, Location to) {
@@ -45,6 +201,17 @@ public class Topology {
 	}
 
 	public LocationDirection getAdjacent(LocationDirection location) {
+		int d = getDirectionIndex(location.direction);
+		if (d >= 0 && isValidLocation(location)) {
+			int cell = getCell(location);
+			int next = getAdjacentCell(cell, d);
+			if (next < 0)
+				return null;
+			Direction direction = isAdjacentFlipped(cell, d) ? DIRECTIONS[REVERSE[d]] : location.direction;
+			return new LocationDirection(getCellX(next), getCellY(next), direction);
+		}
+
+		// Not on the grid or not moving, work it out the long way
 		Direction direction = location.direction;
 		int x = location.x + direction.x;
 		int y = location.y + direction.y;
@@ -122,57 +289,406 @@ public class Topology {
 	}
 
 	public Set<Location> getArea(Location zero, float radius) {
-		Set<Location> result = new HashSet<Location>();
-		float rSquared = radius * radius;
+		final Set<Location> result = new HashSet<Location>();
+		forEachInArea(getCell(zero), radius, new CellVisitor() {
+			@Override
+			public void visit(int cell) {
+				result.add(new Location(getCellX(cell), getCellY(cell)));
+			}
+		});
+		return result;
+	}
+
+	/**
+	 * Calls visitor once for every cell within radius of the centre cell, including the centre.
+	 * Distance is measured the same way as {@link #getDistance(Location, Location)}, so the area
+	 * follows the wrapping edges.
+	 *
+	 * @param centre cell index of the centre
+	 * @param radius area radius
+	 * @param visitor called with the index of each cell in the area
+	 */
+	public void forEachInArea(int centre, float radius, final CellVisitor visitor) {
+		forEachInArea(centre, radius, new DistanceVisitor() {
+			@Override
+			public void visit(int cell, int distanceSquared) {
+				visitor.visit(cell);
+			}
+		});
+	}
+
+	/**
+	 * Same as {@link #forEachInArea(int, float, CellVisitor)}, also passing the distance of each
+	 * cell from the centre.
+	 *
+	 * @param centre cell index of the centre
+	 * @param radius area radius
+	 * @param visitor called with the index and squared distance of each cell in the area
+	 */
+	public void forEachInArea(int centre, float radius, DistanceVisitor visitor) {
+		if (radius < 0)
+			return;
+
+		int cx = getCellX(centre);
+		int cy = getCellY(centre);
+		AreaStencil stencil = getStencil(radius);
 
 		if (!wrap) {
-			int x0 = Math.min(zero.x - (int)Math.ceil(radius), 0);
-			int x1 = Math.max(zero.x + (int)Math.ceil(radius), width - 1);
-			int y0 = Math.min(zero.y - (int)Math.ceil(radius), 0);
-			int y1 = Math.max(zero.y + (int)Math.ceil(radius), height - 1);
-
-			for (int x = x0; x < x1; x++) {
-				for (int y = y0; y < y1; y++) {
-					Location l = new Location(x, y);
-					if (getDistanceSquared(zero, l) <= rSquared) {
-						result.add(l);
-					}
+			for (int i = 0; i < stencil.size; i++) {
+				int x = cx + stencil.dx[i];
+				int y = cy + stencil.dy[i];
+				if (x >= 0 && x < width && y >= 0 && y < height)
+					visitor.visit(y * width + x, squared(stencil.dx[i], stencil.dy[i]));
+			}
+
+		} else if (2 * stencil.reach < width / 2 && 2 * stencil.reach < height) {
+			// Small enough that no two stencil cells land on the same grid cell
+			for (int i = 0; i < stencil.size; i++) {
+				visitor.visit(wrapVirtualCell(cx + stencil.dx[i], cy + stencil.dy[i]),
+						squared(stencil.dx[i], stencil.dy[i]));
+			}
+
+		} else {
+			// Area wraps around onto itself, check every cell once instead
+			float rSquared = radius * radius;
+			for (int y = 0; y < height; y++) {
+				for (int x = 0; x < width; x++) {
+					int d = wrapDistanceSquared(cx, cy, x, y);
+					if (d <= rSquared)
+						visitor.visit(y * width + x, d);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Splits the area of {@link #forEachInArea(int, float, CellVisitor)} into horizontal runs of
+	 * cells. Each cell of the area is part of exactly one span.
+	 *
+	 * @param centre cell index of the centre
+	 * @param radius area radius
+	 * @param visitor called once for each span
+	 */
+	public void forEachSpanInArea(int centre, float radius, SpanVisitor visitor) {
+		if (radius < 0)
+			return;
+
+		int cx = getCellX(centre);
+		int cy = getCellY(centre);
+		AreaStencil stencil = getStencil(radius);
+
+		if (!wrap) {
+			for (int dy = -stencil.reach; dy <= stencil.reach; dy++) {
+				int half = stencil.rowReach[dy + stencil.reach];
+				int y = cy + dy;
+				if (half < 0 || y < 0 || y >= height)
+					continue;
+				int x0 = Math.max(0, cx - half);
+				int x1 = Math.min(width - 1, cx + half);
+				if (x0 <= x1)
+					visitor.visit(y, x0, x1);
+			}
+
+		} else if (2 * stencil.reach < width / 2 && 2 * stencil.reach < height) {
+			for (int dy = -stencil.reach; dy <= stencil.reach; dy++) {
+				int half = stencil.rowReach[dy + stencil.reach];
+				if (half < 0)
+					continue;
+				int y = cy + dy;
+				int x0 = cx - half;
+				if (y < 0) {
+					y = -y - 1;
+					x0 -= width / 2;
+				} else if (y >= height) {
+					y = 2 * height - y - 1;
+					x0 -= width / 2;
+				}
+				x0 %= width;
+				if (x0 < 0)
+					x0 += width;
+				int x1 = x0 + 2 * half;
+				if (x1 < width) {
+					visitor.visit(y, x0, x1);
+				} else {
+					visitor.visit(y, x0, width - 1);
+					visitor.visit(y, 0, x1 - width);
 				}
 			}
 
 		} else {
-			if (radius > Math.max(width, height))
-				radius = Math.max(width, height);
-
-			result.add(zero);
-			LocationDirection l = new LocationDirection(zero, NORTH);
-
-			// walk around the zero point in increasingly larger rectangles
-			for (int r = 1; r <= radius; r++) {
-				// North-center point
-				l = getAdjacent(l);
-				result.add(l);
-
-				// length of walks along each side of the rectangle
-				// North-center to NE to SE to SW to NW, back to North-center
-				int[] sides = {r, r*2, r*2, r*2, r-1};
-
-				for (int side : sides) {
-					l = getTurnRightPosition(l);
-					for (int i = 0; i < side; i++) {
-						l = getAdjacent(l);
-						if (getDistanceSquared(zero, l) <= rSquared)
-							result.add(l);
-					}
+			// Area wraps around onto itself, fall back to single cells
+			float rSquared = radius * radius;
+			for (int y = 0; y < height; y++) {
+				for (int x = 0; x < width; x++) {
+					if (wrapDistanceSquared(cx, cy, x, y) <= rSquared)
+						visitor.visit(y, x, x);
 				}
+			}
+		}
+	}
+
+	/**
+	 * Counts cells within radius of the centre cell that are accepted by the filter.
+	 * The area is the same as for {@link #forEachInArea(int, float, CellVisitor)}.
+	 */
+	public int countInArea(int centre, float radius, CellFilter filter) {
+		if (radius < 0)
+			return 0;
 
-				// finish back at top-center, facing up
-				l = getAdjacent(l);
-				l = getTurnLeftPosition(l);
+		int cx = getCellX(centre);
+		int cy = getCellY(centre);
+		AreaStencil stencil = getStencil(radius);
+		int count = 0;
+
+		if (!wrap) {
+			for (int i = 0; i < stencil.size; i++) {
+				int x = cx + stencil.dx[i];
+				int y = cy + stencil.dy[i];
+				if (x >= 0 && x < width && y >= 0 && y < height && filter.accept(y * width + x))
+					count++;
+			}
+
+		} else if (2 * stencil.reach < width / 2 && 2 * stencil.reach < height) {
+			for (int i = 0; i < stencil.size; i++) {
+				if (filter.accept(wrapVirtualCell(cx + stencil.dx[i], cy + stencil.dy[i])))
+					count++;
+			}
+
+		} else {
+			float rSquared = radius * radius;
+			for (int y = 0; y < height; y++) {
+				for (int x = 0; x < width; x++) {
+					if (wrapDistanceSquared(cx, cy, x, y) <= rSquared && filter.accept(y * width + x))
+						count++;
+				}
 			}
 		}
+		return count;
+	}
 
-		return result;
+	/**
+	 * Maps a point outside the grid back onto the cell it stands for on a wrapping grid.
+	 * Inverse of {@link #getWrapVirtualLocations(Location)}.
+	 */
+	private int wrapVirtualCell(int x, int y) {
+		if (y < 0) {
+			y = -y - 1;
+			x -= width / 2;
+		} else if (y >= height) {
+			y = 2 * height - y - 1;
+			x -= width / 2;
+		}
+		x %= width;
+		if (x < 0)
+			x += width;
+		return y * width + x;
+	}
+
+	/**
+	 * Same as {@link #getDistanceSquared(Location, Location)} on a wrapping grid, without
+	 * building the list of virtual locations.
+	 */
+	private int wrapDistanceSquared(int fromX, int fromY, int toX, int toY) {
+		int best = Integer.MAX_VALUE;
+		for (int image = 0; image < WRAP_IMAGES; image++) {
+			best = Math.min(best, squared(wrapImageX(image, toX) - fromX, wrapImageY(image, toY) - fromY));
+		}
+		return best;
+	}
+
+	/**
+	 * Number of virtual locations of a cell on a wrapping grid, see {@link #getWrapVirtualLocations(Location)}
+	 */
+	private static final int WRAP_IMAGES = 7;
+
+	/**
+	 * @return x coordinate of the given virtual location, in the order of {@link #getWrapVirtualLocations(Location)}
+	 */
+	private int wrapImageX(int image, int x) {
+		switch (image) {
+			case 0: return x;
+			case 1: return x - width;
+			case 2: return x + width;
+			case 3: case 5: return x - width + width / 2;
+			default: return x + width / 2;
+		}
+	}
+
+	/**
+	 * @return y coordinate of the given virtual location, in the order of {@link #getWrapVirtualLocations(Location)}
+	 */
+	private int wrapImageY(int image, int y) {
+		switch (image) {
+			case 0: case 1: case 2: return y;
+			case 3: case 4: return 2 * height - y - 1;
+			default: return - y - 1;
+		}
+	}
+
+	private static int squared(int dx, int dy) {
+		return dx * dx + dy * dy;
+	}
+
+	/**
+	 * Same as {@link #getDistanceSquared(Location, Location)}, for cell indexes.
+	 */
+	public int getDistanceSquared(int fromCell, int toCell) {
+		int fromX = getCellX(fromCell);
+		int fromY = getCellY(fromCell);
+		int toX = getCellX(toCell);
+		int toY = getCellY(toCell);
+		if (wrap)
+			return wrapDistanceSquared(fromX, fromY, toX, toY);
+		return squared(toX - fromX, toY - fromY);
+	}
+
+	/**
+	 * Visits the cells on the edge of the square of the given size around the centre: the centre
+	 * itself for ring 0, its 8 neighbours for ring 1 and so on. On a wrapping grid the same cell
+	 * may come up more than once, in the same or in different rings.
+	 *
+	 * <p>Any cell at distance d from the centre is visited in one of the rings up to ceil(d).
+	 *
+	 * @param centre cell index of the centre
+	 * @param ring distance from the centre along x or y
+	 * @param visitor called with each cell in the ring
+	 * @return false if the ring is entirely outside of the grid, and so are all bigger rings
+	 */
+	public boolean forEachInRing(int centre, int ring, CellVisitor visitor) {
+		int cx = getCellX(centre);
+		int cy = getCellY(centre);
+
+		if (!wrap) {
+			if (cx - ring < 0 && cy - ring < 0 && cx + ring >= width && cy + ring >= height)
+				return false;
+		} else {
+			if (ring > Math.max(width, height))
+				return false;
+		}
+
+		if (ring == 0) {
+			visitor.visit(centre);
+			return true;
+		}
+
+		for (int x = cx - ring; x <= cx + ring; x++) {
+			visitRingCell(x, cy - ring, visitor);
+			visitRingCell(x, cy + ring, visitor);
+		}
+		for (int y = cy - ring + 1; y < cy + ring; y++) {
+			visitRingCell(cx - ring, y, visitor);
+			visitRingCell(cx + ring, y, visitor);
+		}
+		return true;
+	}
+
+	private void visitRingCell(int x, int y, CellVisitor visitor) {
+		if (!wrap) {
+			if (x >= 0 && x < width && y >= 0 && y < height)
+				visitor.visit(y * width + x);
+		} else if (y >= -height && y < 2 * height) {
+			visitor.visit(wrapVirtualCell(x, y));
+		}
+	}
+
+	/**
+	 * Open addressed table of stencils by the bits of their radius. Replaced as a whole when a
+	 * stencil is added, so lookups need no lock.
+	 */
+	private volatile AreaStencil[] stencils = new AreaStencil[16];
+
+	private int stencilCount = 0;
+
+	private AreaStencil getStencil(float radius) {
+		AreaStencil stencil = findStencil(stencils, Float.floatToIntBits(radius));
+		if (stencil == null)
+			stencil = addStencil(radius);
+		return stencil;
+	}
+
+	private static AreaStencil findStencil(AreaStencil[] table, int radiusBits) {
+		int mask = table.length - 1;
+		for (int i = stencilSlot(radiusBits, mask); table[i] != null; i = (i + 1) & mask) {
+			if (table[i].radiusBits == radiusBits)
+				return table[i];
+		}
+		return null;
+	}
+
+	private synchronized AreaStencil addStencil(float radius) {
+		int radiusBits = Float.floatToIntBits(radius);
+		AreaStencil stencil = findStencil(stencils, radiusBits);
+		if (stencil != null)
+			return stencil;
+
+		stencil = new AreaStencil(radius);
+		AreaStencil[] old = stencils;
+		int length = old.length;
+		if (2 * (stencilCount + 1) > length)
+			length *= 2;
+		AreaStencil[] table = new AreaStencil[length];
+		for (AreaStencil s : old) {
+			if (s != null)
+				putStencil(table, s);
+		}
+		putStencil(table, stencil);
+		stencilCount++;
+		stencils = table;
+		return stencil;
+	}
+
+	private static void putStencil(AreaStencil[] table, AreaStencil stencil) {
+		int mask = table.length - 1;
+		int i = stencilSlot(stencil.radiusBits, mask);
+		while (table[i] != null)
+			i = (i + 1) & mask;
+		table[i] = stencil;
+	}
+
+	private static int stencilSlot(int radiusBits, int mask) {
+		int h = radiusBits * 0x9E3779B9;
+		return (h ^ (h >>> 16)) & mask;
+	}
+
+	/**
+	 * Offsets of all cells within a given radius of the origin, row by row.
+	 */
+	private static class AreaStencil {
+		final int radiusBits;
+		final int reach;
+		final int size;
+		final int[] dx;
+		final int[] dy;
+		/**
+		 * Largest x offset in each row, by y offset + reach; -1 for empty rows
+		 */
+		final int[] rowReach;
+
+		AreaStencil(float radius) {
+			radiusBits = Float.floatToIntBits(radius);
+			reach = (int) Math.ceil(radius);
+			float rSquared = radius * radius;
+
+			int side = 2 * reach + 1;
+			int[] xs = new int[side * side];
+			int[] ys = new int[side * side];
+			rowReach = new int[side];
+			int n = 0;
+			for (int y = -reach; y <= reach; y++) {
+				rowReach[y + reach] = -1;
+				for (int x = -reach; x <= reach; x++) {
+					if (x * x + y * y <= rSquared) {
+						xs[n] = x;
+						ys[n] = y;
+						n++;
+						rowReach[y + reach] = Math.max(rowReach[y + reach], x);
+					}
+				}
+			}
+			size = n;
+			dx = Arrays.copyOf(xs, n);
+			dy = Arrays.copyOf(ys, n);
+		}
 	}
 
 	public LocationDirection getTurnRightPosition(LocationDirection location) {
@@ -184,11 +700,13 @@ public class Topology {
 	}
 
 	protected Direction turnRight(Direction dir) {
-		return new Direction(-dir.y, +dir.x);
+		int d = getDirectionIndex(dir);
+		return d < 0 ? NONE : DIRECTIONS[TURN_RIGHT[d]];
 	}
 
 	protected Direction turnLeft(Direction dir) {
-		return new Direction(+dir.y, -dir.x);
+		int d = getDirectionIndex(dir);
+		return d < 0 ? NONE : DIRECTIONS[TURN_LEFT[d]];
 	}
 
 	public Rotation getRotationBetween(Direction from, Direction to) {
@@ -230,9 +748,38 @@ public class Topology {
 
 	public Direction getDirectionBetween8way(Location from, Location to) {
 		to = getClosestWrapLocation(from, to);
+		return getDirection8way(to.x - from.x, to.y - from.y);
+	}
 
-		int deltaX = to.x - from.x;
-		int deltaY = to.y - from.y;
+	/**
+	 * Same as {@link #getDirectionBetween8way(Location, Location)}, for cell indexes.
+	 */
+	public Direction getDirectionBetween8way(int fromCell, int toCell) {
+		int fromX = getCellX(fromCell);
+		int fromY = getCellY(fromCell);
+		int toX = getCellX(toCell);
+		int toY = getCellY(toCell);
+		if (!wrap)
+			return getDirection8way(toX - fromX, toY - fromY);
+
+		// Closest virtual location, first one wins on ties like getClosestWrapLocation()
+		int best = Integer.MAX_VALUE;
+		int bestX = toX;
+		int bestY = toY;
+		for (int image = 0; image < WRAP_IMAGES; image++) {
+			int x = wrapImageX(image, toX);
+			int y = wrapImageY(image, toY);
+			int d = squared(x - fromX, y - fromY);
+			if (d < best) {
+				best = d;
+				bestX = x;
+				bestY = y;
+			}
+		}
+		return getDirection8way(bestX - fromX, bestY - fromY);
+	}
+
+	private static Direction getDirection8way(int deltaX, int deltaY) {
 		if (deltaX == 0 && deltaY == 0)
 			return NONE;
 
@@ -279,6 +826,33 @@ public class Topology {
 			SOUTHWEST, NORTHWEST
 	};
 
+	/**
+	 * Directions by index, same order as ALL_8_WAY.
+	 */
+	private static final Direction[] DIRECTIONS = {
+			NORTH, EAST,
+			SOUTH, WEST,
+			NORTHEAST, SOUTHEAST,
+			SOUTHWEST, NORTHWEST
+	};
+
+	public static final int DIRECTION_COUNT = DIRECTIONS.length;
+
+	/**
+	 * Direction index by (y + 1) * 3 + x + 1
+	 */
+	private static final int[] DIRECTION_INDEX = {
+			7, 0, 4,
+			3, -1, 1,
+			6, 2, 5
+	};
+
+	private static final int[] REVERSE = { 2, 3, 0, 1, 6, 7, 4, 5 };
+
+	private static final int[] TURN_RIGHT = { 1, 2, 3, 0, 5, 6, 7, 4 };
+
+	private static final int[] TURN_LEFT = { 3, 0, 1, 2, 7, 4, 5, 6 };
+
 	public Direction getRandomDirection() {
 		int i = randomSource.getRandom().nextInt(ALL_4_WAY.length);
 		return ALL_4_WAY[i];
@@ -1,9 +1,10 @@
 package org.cobweb.cobweb2.impl;
 
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashMap;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.Random;
 
 import org.apache.commons.collections4.queue.CircularFifoQueue;
 import org.cobweb.cobweb2.core.Agent;
@@ -16,6 +17,7 @@ import org.cobweb.cobweb2.core.LocationDirection;
 import org.cobweb.cobweb2.core.SimulationInternals;
 import org.cobweb.cobweb2.core.Topology;
 import org.cobweb.cobweb2.plugins.AgentState;
+import org.cobweb.cobweb2.plugins.AgentStateSlots;
 import org.cobweb.cobweb2.plugins.broadcast.BroadcastPacket;
 import org.cobweb.cobweb2.plugins.broadcast.FoodBroadcast;
 import org.cobweb.cobweb2.plugins.broadcast.PacketConduit;
@@ -36,8 +38,30 @@ import org.cobweb.util.RandomNoGenerator;
  */
 public class ComplexAgent extends Agent {
 
+	private static final SexualBirthCause SEXUAL_BIRTH_CAUSE = new SexualBirthCause();
+	private static final AsexualBirthCause ASEXUAL_BIRTH_CAUSE = new AsexualBirthCause();
+	private static final CreationBirthCause CREATION_BIRTH_CAUSE = new CreationBirthCause();
+	private static final DeathCause DEATH_CAUSE = new DeathCause();
+	private static final EatFavoriteFoodCause EAT_FAVORITE_FOOD_CAUSE = new EatFavoriteFoodCause();
+	private static final EatFoodCause EAT_FOOD_CAUSE = new EatFoodCause();
+	private static final EatAgentCause EAT_AGENT_CAUSE = new EatAgentCause();
+	private static final BumpWallCause BUMP_WALL_CAUSE = new BumpWallCause();
+	private static final BroadcastFoodCause BROADCAST_FOOD_CAUSE = new BroadcastFoodCause();
+	private static final AsexualReproductionCause ASEXUAL_REPRODUCTION_CAUSE = new AsexualReproductionCause();
+	private static final SexualReproductionCause SEXUAL_REPRODUCTION_CAUSE = new SexualReproductionCause();
+	private static final StepForwardCause STEP_FORWARD_CAUSE = new StepForwardCause();
+	private static final BumpAgentCause BUMP_AGENT_CAUSE = new BumpAgentCause();
+	private static final TurnLeftCause TURN_LEFT_CAUSE = new TurnLeftCause();
+	private static final TurnRightCause TURN_RIGHT_CAUSE = new TurnRightCause();
+	private static final AgingPenaltyCause AGING_PENALTY_CAUSE = new AgingPenaltyCause();
+
+	/**
+	 * Parameters of the agent, shared with the other agents of its type until getOwnParams() is called.
+	 */
 	public ComplexAgentParams params;
 
+	private boolean ownParams;
+
 	private double commInbox;
 
 	private double commOutbox;
@@ -60,7 +84,10 @@ public class ComplexAgent extends Agent {
 
 	protected boolean pregnant = false;
 
-	public Map<Class<? extends AgentState>, AgentState> extraState = new HashMap<>();
+	/**
+	 * Plugin states, indexed by {@link AgentStateSlots} slot
+	 */
+	private AgentState[] states = new AgentState[AgentStateSlots.count()];
 
 	public transient ComplexEnvironment environment;
 
@@ -93,21 +120,50 @@ public class ComplexAgent extends Agent {
 	}
 
 	public <T extends AgentState> void setState(Class<T> type, T value) {
-		extraState.put(type, value);
+		setState(AgentStateSlots.slotOf(type), value);
 	}
 
 	public <T extends AgentState> T getState(Class<T> type) {
 		@SuppressWarnings("unchecked")
-		T storedState = (T) extraState.get(type);
+		T storedState = (T) getState(AgentStateSlots.slotOf(type));
 		return storedState;
 	}
 
 	public <T extends AgentState> T removeState(Class<T> type) {
 		@SuppressWarnings("unchecked")
-		T removed = (T) extraState.remove(type);
+		T removed = (T) removeState(AgentStateSlots.slotOf(type));
+		return removed;
+	}
+
+	public void setState(int slot, AgentState value) {
+		if (slot >= states.length)
+			states = Arrays.copyOf(states, Math.max(slot + 1, AgentStateSlots.count()));
+		states[slot] = value;
+	}
+
+	public AgentState getState(int slot) {
+		return slot < states.length ? states[slot] : null;
+	}
+
+	public AgentState removeState(int slot) {
+		AgentState removed = getState(slot);
+		if (removed != null)
+			states[slot] = null;
 		return removed;
 	}
 
+	/**
+	 * @return copy of the agent's plugin states, keyed by state class
+	 */
+	public Map<Class<? extends AgentState>, AgentState> getStates() {
+		Map<Class<? extends AgentState>, AgentState> result = new LinkedHashMap<>();
+		for (int slot = 0; slot < states.length; slot++) {
+			if (states[slot] != null)
+				result.put(AgentStateSlots.typeOf(slot), states[slot]);
+		}
+		return Collections.unmodifiableMap(result);
+	}
+
 	@Override
 	protected ComplexAgent createChildAsexual(LocationDirection location) {
 		ComplexAgent child = new ComplexAgent(simulation, getType());
@@ -134,9 +190,7 @@ public class ComplexAgent extends Agent {
 		if(getType() != otherParent.getType()){
 			float probOfOtherType = params.probGiveBirthToOtherType.getValue();
 			float probGiveBirthToSameType = probOfOtherType + (1 - probOfOtherType)/2;
-			Random rand = new Random();
-
-			float n = rand.nextFloat();
+			float n = getRandom().nextFloat();
 
 			if(n <= probOfOtherType){
 				child = new ComplexAgent(simulation, params.childType.getValue()- 1);
@@ -171,7 +225,7 @@ public class ComplexAgent extends Agent {
 
 		initPosition(pos);
 
-		changeEnergy(params.initEnergy.getValue(), new SexualBirthCause());
+		changeEnergy(params.initEnergy.getValue(), SEXUAL_BIRTH_CAUSE);
 	}
 
 
@@ -190,7 +244,7 @@ public class ComplexAgent extends Agent {
 
 		initPosition(pos);
 
-		changeEnergy(params.initEnergy.getValue(), new AsexualBirthCause());
+		changeEnergy(params.initEnergy.getValue(), ASEXUAL_BIRTH_CAUSE);
 	}
 
 	/**
@@ -206,7 +260,7 @@ public class ComplexAgent extends Agent {
 
 		initPosition(pos);
 
-		changeEnergy(energy, new CreationBirthCause());
+		changeEnergy(energy, CREATION_BIRTH_CAUSE);
 	}
 
 	public void setController(Controller c) {
@@ -293,7 +347,7 @@ public class ComplexAgent extends Agent {
 	public void die() {
 		super.die();
 
-		changeEnergy(Math.min(0, -getEnergy()), new DeathCause());
+		changeEnergy(Math.min(0, -getEnergy()), DEATH_CAUSE);
 
 		getAgentListener().onDeath(this);
 
@@ -316,9 +370,9 @@ public class ComplexAgent extends Agent {
 		environment.removeFood(destPos);
 		// Gain Energy according to the food type.
 		if (foodType == getType()) {
-			changeEnergy(+params.foodEnergy.getValue(), new EatFavoriteFoodCause());
+			changeEnergy(+params.foodEnergy.getValue(), EAT_FAVORITE_FOOD_CAUSE);
 		} else {
-			changeEnergy(+params.otherFoodEnergy.getValue(), new EatFoodCause());
+			changeEnergy(+params.otherFoodEnergy.getValue(), EAT_FOOD_CAUSE);
 		}
 		getAgentListener().onConsumeFood(this, foodType);
 	}
@@ -331,7 +385,7 @@ public class ComplexAgent extends Agent {
 	 */
 	protected void eat(ComplexAgent adjacentAgent) {
 		int gain = (int) (adjacentAgent.getEnergy() * params.agentFoodEnergy.getValue());
-		changeEnergy(+gain, new EatAgentCause());
+		changeEnergy(+gain, EAT_AGENT_CAUSE);
 		getAgentListener().onConsumeAgent(this, adjacentAgent);
 		adjacentAgent.die();
 	}
@@ -351,11 +405,16 @@ public class ComplexAgent extends Agent {
 	}
 
 	protected Agent getAdjacentAgent() {
-		Location destPos = environment.topology.getAdjacent(getPosition());
-		if (destPos == null) {
+		Topology topology = environment.topology;
+		int direction = Topology.getDirectionIndex(getPosition().direction);
+		if (direction < 0) {
+			return environment.getAgent(getPosition());
+		}
+		int destCell = topology.getAdjacentCell(topology.getCell(getPosition()), direction);
+		if (destCell < 0) {
 			return null;
 		}
-		return environment.getAgent(destPos);
+		return environment.getAgent(destCell);
 	}
 
 	public long getAge() {
@@ -396,10 +455,11 @@ public class ComplexAgent extends Agent {
 		if (oldPos != null && newPos != null)
 			newPos = getAgentListener().onTryStep(this, oldPos, newPos);
 
-		if (oldPos != null)
+		if (oldPos != null && newPos != null)
+			environment.moveAgent(oldPos, newPos, this);
+		else if (oldPos != null)
 			environment.setAgent(oldPos, null);
-
-		if (newPos != null)
+		else if (newPos != null)
 			environment.setAgent(newPos, this);
 
 		getAgentListener().onStep(this, oldPos, newPos);
@@ -435,17 +495,32 @@ public class ComplexAgent extends Agent {
 
 	/**
 	 * Sets the complex agents parameters.
+	 * They are not copied, so agents of the same type share them until one needs to modify them.
 	 *
 	 * @param agentData The ComplexAgentParams used for this complex agent.
 	 */
 	public void setParams(ComplexAgentParams agentData) {
 
-		this.params = agentData.clone();
+		this.params = agentData;
+		this.ownParams = false;
 
 		badAgentMemory = new CircularFifoQueue<Agent>(params.pdMemory);
 
 	}
 
+	/**
+	 * Parameters of this agent that are not shared with other agents, for the agent to modify.
+	 * The MutatableFloat/Int fields in them may still be shared, and must be replaced with a copy
+	 * before they are modified.
+	 */
+	public ComplexAgentParams getOwnParams() {
+		if (!ownParams) {
+			params = params.shallowCopy();
+			ownParams = true;
+		}
+		return params;
+	}
+
 	public void setMemoryBuffer(double memoryBuffer) {
 		this.memoryBuffer = memoryBuffer;
 	}
@@ -509,7 +584,7 @@ public class ComplexAgent extends Agent {
 		} // end of two agents meet
 		else {
 			// Non-free tile (rock/waste/etc) bump
-			changeEnergy(-params.stepRockEnergy.getValue(), new BumpWallCause());
+			changeEnergy(-params.stepRockEnergy.getValue(), BUMP_WALL_CAUSE);
 		}
 		applyAgePenalty();
 
@@ -522,7 +597,7 @@ public class ComplexAgent extends Agent {
 			}
 			else {
 				// can't step, treat as obstacle
-				changeEnergy(-params.stepRockEnergy.getValue(), new BumpWallCause());
+				changeEnergy(-params.stepRockEnergy.getValue(), BUMP_WALL_CAUSE);
 			}
 		}
 
@@ -543,7 +618,7 @@ public class ComplexAgent extends Agent {
 		// Check for food...
 		if (environment.hasFood(destPos)) {
 			if (canBroadcast()) {
-				broadcast(new FoodBroadcast(destPos, this), new BroadcastFoodCause());
+				broadcast(new FoodBroadcast(destPos, this), BROADCAST_FOOD_CAUSE);
 			}
 			if (canEat(destPos)) {
 				eat(destPos);
@@ -564,22 +639,22 @@ public class ComplexAgent extends Agent {
 			ReproductionCause cause = null;
 			if (breedPartner == null) {
 				createChildAsexual(breedPos);
-				cause = new AsexualReproductionCause();
+				cause = ASEXUAL_REPRODUCTION_CAUSE;
 			} else {
 				createChildSexual(breedPos, breedPartner);
-				cause = new SexualReproductionCause();
+				cause = SEXUAL_REPRODUCTION_CAUSE;
 			}
 			changeEnergy(-params.initEnergy.getValue(), cause);
 			applyAgePenalty();
 			breedPartner = null;
 			pregnant = false;
 		}
-		changeEnergy(-params.stepEnergy.getValue(), new StepForwardCause());
+		changeEnergy(-params.stepEnergy.getValue(), STEP_FORWARD_CAUSE);
 	}
 
 	protected void onstepAgentBump(ComplexAgent adjacentAgent) {
 		getAgentListener().onContact(this, adjacentAgent);
-		changeEnergy(-params.stepAgentEnergy.getValue(), new BumpAgentCause());
+		changeEnergy(-params.stepAgentEnergy.getValue(), BUMP_AGENT_CAUSE);
 
 		if (canEat(adjacentAgent)) {
 			eat(adjacentAgent);
@@ -663,7 +738,7 @@ public class ComplexAgent extends Agent {
 	 */
 	public void turnLeft() {
 		position = environment.topology.getTurnLeftPosition(position);
-		changeEnergy(-params.turnLeftEnergy.getValue(), new TurnLeftCause());
+		changeEnergy(-params.turnLeftEnergy.getValue(), TURN_LEFT_CAUSE);
 		afterTurnAction();
 	}
 
@@ -674,7 +749,7 @@ public class ComplexAgent extends Agent {
 	 */
 	public void turnRight() {
 		position = environment.topology.getTurnRightPosition(position);
-		changeEnergy(-params.turnRightEnergy.getValue(), new TurnRightCause());
+		changeEnergy(-params.turnRightEnergy.getValue(), TURN_RIGHT_CAUSE);
 		afterTurnAction();
 	}
 
@@ -690,7 +765,7 @@ public class ComplexAgent extends Agent {
 	protected void applyAgePenalty() {
 		int penalty = energyPenalty();
 		if (penalty > 0)
-			changeEnergy(-penalty, new AgingPenaltyCause());
+			changeEnergy(-penalty, AGING_PENALTY_CAUSE);
 	}
 
 	@Override
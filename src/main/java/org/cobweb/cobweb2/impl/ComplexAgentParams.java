@@ -269,6 +269,28 @@ public class ComplexAgentParams implements ResizableParam {
 		}
 	}
 
+	/**
+	 * Copy for all the agents of a type to share, with its MutatableFloat/Int fields marked as
+	 * shared so they are not modified in place.
+	 * @see ComplexAgent#getOwnParams()
+	 */
+	public ComplexAgentParams sharedCopy() {
+		ComplexAgentParams copy = clone();
+		CloneHelper.shareMutatable(copy);
+		return copy;
+	}
+
+	/**
+	 * Copy that refers to the same MutatableFloat/Int fields as this one.
+	 */
+	public ComplexAgentParams shallowCopy() {
+		try {
+			return (ComplexAgentParams) super.clone();
+		} catch (CloneNotSupportedException ex) {
+			throw new RuntimeException(ex);
+		}
+	}
+
 	@Override
 	public void resize(AgentFoodCountable envParams) {
 		foodweb.resize(envParams);
@@ -4,7 +4,6 @@ import java.util.LinkedHashMap;
 import java.util.Map;
 
 import org.cobweb.cobweb2.core.Agent;
-import org.cobweb.cobweb2.core.Drop;
 import org.cobweb.cobweb2.core.Environment;
 import org.cobweb.cobweb2.core.Location;
 import org.cobweb.cobweb2.core.LocationDirection;
@@ -16,6 +15,9 @@ import org.cobweb.cobweb2.plugins.EnvironmentMutator;
  */
 public class ComplexEnvironment extends Environment {
 
+	/**
+	 * Parameters shared by all the agents of each type
+	 */
 	protected ComplexAgentParams agentData[];
 
 	public ComplexEnvironmentParams data = new ComplexEnvironmentParams();
@@ -55,7 +57,9 @@ public class ComplexEnvironment extends Environment {
 	 */
 	public synchronized void setParams(ComplexEnvironmentParams envParams, AgentParams agentParams, boolean keepOldAgents, boolean keepOldArray, boolean keepOldDrops) throws IllegalArgumentException {
 		data = envParams;
-		agentData = agentParams.agentParams;
+		agentData = new ComplexAgentParams[agentParams.agentParams.length];
+		for (int i = 0; i < agentData.length; i++)
+			agentData[i] = agentParams.agentParams[i].sharedCopy();
 
 		super.load(data.width, data.height, data.wrapMap, keepOldArray);
 
@@ -65,7 +69,7 @@ public class ComplexEnvironment extends Environment {
 			loadOldAgents();
 		} else {
 			// do not call clearAgents(), it invokes mutators, etc
-			agentTable.clear();
+			clearOccupants();
 		}
 
 		if (!keepOldDrops) {
@@ -162,19 +166,4 @@ public class ComplexEnvironment extends Environment {
 		T plugin = (T) plugins.get(type);
 		return plugin;
 	}
-
-	/**
-	 *
-	 */
-	private void updateDrops() {
-		for (int x = 0; x < topology.width; x++) {
-			for (int y = 0; y < topology.height; y++) {
-				Location l = new Location(x, y);
-				if (!hasDrop(l))
-					continue;
-				Drop d = getDrop(l);
-				d.update();
-			}
-		}
-	}
 }
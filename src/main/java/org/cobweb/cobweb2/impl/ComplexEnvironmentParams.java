@@ -40,6 +40,13 @@ public class ComplexEnvironmentParams implements ParameterSerializable {
 	@ConfXMLTag("randomStones")
 	public int initialStones = 10;
 
+	/**
+	 * Number of broadcasts that can be sent each tick, 0 for no limit.
+	 */
+	@ConfDisplayName("Broadcasts per tick")
+	@ConfXMLTag("broadcastsPerTick")
+	public int broadcastsPerTick = 1;
+
 
 	private static final long serialVersionUID = 2L;
 }
\ No newline at end of file
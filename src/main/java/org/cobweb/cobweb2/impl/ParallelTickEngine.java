@@ -0,0 +1,372 @@
+package org.cobweb.cobweb2.impl;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import org.cobweb.cobweb2.core.Agent;
+import org.cobweb.cobweb2.core.AgentRegistry;
+import org.cobweb.cobweb2.core.Location;
+import org.cobweb.cobweb2.core.RandomSource;
+import org.cobweb.cobweb2.core.SimulationInternals;
+import org.cobweb.cobweb2.core.Topology;
+import org.cobweb.cobweb2.plugins.MutatorListener;
+import org.cobweb.util.RandomNoGenerator;
+
+/**
+ * Updates agents tile by tile.
+ *
+ * <p>The grid is cut into rectangular tiles. Two tiles conflict when an agent in one of them can
+ * reach a cell that an agent in the other can reach during the same update. Tiles are coloured so
+ * that no two conflicting tiles share a colour; colours are then processed one after another and
+ * all tiles of one colour are updated at the same time on a ForkJoinPool.
+ *
+ * <p>Each tile draws random numbers from its own generator, seeded from the simulation generator
+ * at the start of the tick, and agents born inside a tile are held back until the end of the tick.
+ * Agents are assigned to tiles by their position at the start of the tick and each one is updated
+ * exactly once, even if it walks into another tile. The outcome of a tick therefore does not depend
+ * on the number of threads running it.
+ */
+public class ParallelTickEngine {
+
+	private static final long SEED_STRIDE = 0x9E3779B97F4A7C15L;
+
+	private final RandomSource simulationRandom;
+
+	private final int tileSize;
+
+	private final ForkJoinPool pool;
+
+	private Topology topology;
+
+	private int tilesX;
+
+	private int tilesY;
+
+	private Tile[] tiles = new Tile[0];
+
+	private Tile[][] colours = new Tile[0][];
+
+	private final ThreadLocal<Tile> currentTile = new ThreadLocal<Tile>();
+
+	/**
+	 * @param simulationRandom source of the per-tick seed
+	 * @param threads number of worker threads
+	 * @param tileSize minimum width and height of a tile
+	 */
+	public ParallelTickEngine(RandomSource simulationRandom, int threads, int tileSize) {
+		if (threads < 1)
+			throw new IllegalArgumentException("Parallel tick engine needs at least one thread");
+		this.simulationRandom = simulationRandom;
+		this.tileSize = Math.max(1, tileSize);
+		this.pool = threads > 1 ? new ForkJoinPool(threads) : null;
+	}
+
+	/**
+	 * Cuts the grid into tiles and colours them.
+	 *
+	 * @param topology grid to cover
+	 * @param reach largest distance from its starting cell at which an agent update may read or
+	 * change anything
+	 */
+	public void setTopology(Topology topology, int reach) {
+		this.topology = topology;
+		tilesX = Math.max(1, topology.width / tileSize);
+		tilesY = Math.max(1, topology.height / tileSize);
+
+		tiles = new Tile[tilesX * tilesY];
+		for (int i = 0; i < tiles.length; i++)
+			tiles[i] = new Tile(i);
+
+		BitSet[] conflicts = findConflicts(2 * reach);
+		// Adjacency is one-sided along the flipped edges of odd-width grids
+		for (int t = 0; t < tiles.length; t++) {
+			for (int other = conflicts[t].nextSetBit(0); other >= 0; other = conflicts[t].nextSetBit(other + 1))
+				conflicts[other].set(t);
+		}
+
+		// Greedy colouring in tile order, deterministic for a given grid
+		int[] colourOf = new int[tiles.length];
+		List<List<Tile>> colourLists = new ArrayList<List<Tile>>();
+		for (int t = 0; t < tiles.length; t++) {
+			BitSet used = new BitSet();
+			for (int other = conflicts[t].nextSetBit(0); other >= 0 && other < t; other = conflicts[t].nextSetBit(other + 1))
+				used.set(colourOf[other]);
+			int colour = used.nextClearBit(0);
+			colourOf[t] = colour;
+			if (colour == colourLists.size())
+				colourLists.add(new ArrayList<Tile>());
+			colourLists.get(colour).add(tiles[t]);
+		}
+
+		colours = new Tile[colourLists.size()][];
+		for (int c = 0; c < colours.length; c++)
+			colours[c] = colourLists.get(c).toArray(new Tile[0]);
+	}
+
+	/**
+	 * Walks outward from every tile up to the given number of steps and records which other tiles
+	 * it runs into. Uses the topology's own adjacency so wrapping edges are handled correctly.
+	 */
+	private BitSet[] findConflicts(int distance) {
+		int width = topology.width;
+		int height = topology.height;
+		int[] visitedBy = new int[width * height];
+		int[] depth = new int[width * height];
+		int[] queue = new int[width * height];
+
+		BitSet[] conflicts = new BitSet[tiles.length];
+		for (Tile tile : tiles) {
+			BitSet found = new BitSet(tiles.length);
+			int stamp = tile.index + 1;
+
+			int head = 0;
+			int tail = 0;
+			int tx = tile.index % tilesX;
+			int ty = tile.index / tilesX;
+			for (int x = columnStart(tx); x < columnStart(tx + 1); x++) {
+				for (int y = rowStart(ty); y < rowStart(ty + 1); y++) {
+					visitedBy[y * width + x] = stamp;
+					depth[y * width + x] = 0;
+					queue[tail++] = y * width + x;
+				}
+			}
+
+			while (head < tail) {
+				int cell = queue[head++];
+				int d = depth[cell];
+				found.set(tileIndex(topology.getCellX(cell), topology.getCellY(cell)));
+				if (d == distance)
+					continue;
+				for (int dir = 0; dir < Topology.DIRECTION_COUNT; dir++) {
+					int n = topology.getAdjacentCell(cell, dir);
+					if (n < 0 || visitedBy[n] == stamp)
+						continue;
+					visitedBy[n] = stamp;
+					depth[n] = d + 1;
+					queue[tail++] = n;
+				}
+			}
+			found.clear(tile.index);
+			conflicts[tile.index] = found;
+		}
+		return conflicts;
+	}
+
+	private int columnStart(int column) {
+		return column * topology.width / tilesX;
+	}
+
+	private int rowStart(int row) {
+		return row * topology.height / tilesY;
+	}
+
+	private int tileIndex(Location l) {
+		return tileIndex(l.x, l.y);
+	}
+
+	private int tileIndex(int x, int y) {
+		int column = (x * tilesX) / topology.width;
+		int row = (y * tilesY) / topology.height;
+		// Integer division can put a boundary cell one tile too low
+		if (column + 1 < tilesX && x >= columnStart(column + 1))
+			column++;
+		if (row + 1 < tilesY && y >= rowStart(row + 1))
+			row++;
+		return row * tilesX + column;
+	}
+
+	/**
+	 * Updates every live agent once.
+	 *
+	 * @param agents agents taking part in the tick
+	 * @param listener called after each agent update
+	 * @param concurrent false to run tiles one at a time on the calling thread, for configurations
+	 * where agents can affect each other across the whole grid. Results are the same either way.
+	 */
+	public void step(AgentRegistry agents, MutatorListener listener, boolean concurrent) {
+		long tickSeed = simulationRandom.getRandom().nextLong();
+		for (Tile tile : tiles) {
+			tile.agents.clear();
+			tile.random.setSeed(tickSeed + tile.index * SEED_STRIDE);
+		}
+
+		for (int i = 0; i < agents.size(); i++) {
+			Agent agent = agents.get(i);
+			if (agent.isAlive())
+				tiles[tileIndex(agent.getPosition())].agents.add(agent);
+		}
+
+		for (Tile[] colour : colours) {
+			if (concurrent && pool != null && colour.length > 1) {
+				pool.invoke(new ColourTask(colour, 0, colour.length, listener));
+			} else {
+				for (Tile tile : colour)
+					runTile(tile, listener);
+			}
+		}
+	}
+
+	private void runTile(Tile tile, MutatorListener listener) {
+		if (tile.agents.isEmpty())
+			return;
+
+		currentTile.set(tile);
+		try {
+			for (Agent agent : tile.agents) {
+				agent.update();
+				listener.onUpdate(agent);
+			}
+		} finally {
+			currentTile.remove();
+		}
+	}
+
+	/**
+	 * @return index of the tile being updated by the current thread, or -1 when called outside of a
+	 * tile update
+	 */
+	public int getTileIndex() {
+		Tile tile = currentTile.get();
+		return tile == null ? -1 : tile.index;
+	}
+
+	/**
+	 * @return number of tiles the grid is cut into
+	 */
+	public int getTileCount() {
+		return tiles.length;
+	}
+
+	/**
+	 * @return random number generator of the tile being updated by the current thread, or null when
+	 * called outside of a tile update
+	 */
+	public RandomNoGenerator getTileRandom() {
+		Tile tile = currentTile.get();
+		return tile == null ? null : tile.random;
+	}
+
+	/**
+	 * Holds on to an agent born during a tile update until the end of the tick.
+	 *
+	 * @return true if the agent was held, false when called outside of a tile update
+	 */
+	public boolean holdBirth(Agent agent) {
+		Tile tile = currentTile.get();
+		if (tile == null)
+			return false;
+		tile.births.add(agent);
+		return true;
+	}
+
+	/**
+	 * Adds the agents born during the last tick to the simulation, in tile order.
+	 */
+	public void releaseBirths(SimulationInternals simulation) {
+		for (Tile tile : tiles) {
+			for (Agent agent : tile.births)
+				simulation.addAgent(agent);
+			tile.births.clear();
+		}
+	}
+
+	/**
+	 * Splits the range [0, count) into pieces and runs them on the worker threads, or runs the whole
+	 * range on the calling thread when there is only one. Pieces must not depend on each other.
+	 *
+	 * @param count size of the range
+	 * @param task work to do on each piece
+	 */
+	public void forEachRange(int count, RangeTask task) {
+		if (pool == null || count < 2) {
+			task.run(0, count);
+			return;
+		}
+		int grain = Math.max(1, count / (4 * pool.getParallelism()));
+		pool.invoke(new RangeAction(task, 0, count, grain));
+	}
+
+	/**
+	 * Piece of work over a range of indexes, see {@link ParallelTickEngine#forEachRange(int, RangeTask)}
+	 */
+	public interface RangeTask {
+		/**
+		 * @param from first index
+		 * @param to index after the last one
+		 */
+		public void run(int from, int to);
+	}
+
+	public void shutdown() {
+		if (pool != null)
+			pool.shutdown();
+	}
+
+	private static class Tile {
+		final int index;
+		final List<Agent> agents = new ArrayList<Agent>();
+		final List<Agent> births = new ArrayList<Agent>();
+		final RandomNoGenerator random = new RandomNoGenerator();
+
+		Tile(int index) {
+			this.index = index;
+		}
+	}
+
+	private static class RangeAction extends RecursiveAction {
+		private final RangeTask task;
+		private final int from;
+		private final int to;
+		private final int grain;
+
+		RangeAction(RangeTask task, int from, int to, int grain) {
+			this.task = task;
+			this.from = from;
+			this.to = to;
+			this.grain = grain;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= grain) {
+				task.run(from, to);
+				return;
+			}
+			int mid = (from + to) >>> 1;
+			invokeAll(new RangeAction(task, from, mid, grain),
+					new RangeAction(task, mid, to, grain));
+		}
+
+		private static final long serialVersionUID = 1L;
+	}
+
+	private class ColourTask extends RecursiveAction {
+		private final Tile[] colour;
+		private final int from;
+		private final int to;
+		private final MutatorListener listener;
+
+		ColourTask(Tile[] colour, int from, int to, MutatorListener listener) {
+			this.colour = colour;
+			this.from = from;
+			this.to = to;
+			this.listener = listener;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from == 1) {
+				runTile(colour[from], listener);
+				return;
+			}
+			int mid = (from + to) >>> 1;
+			invokeAll(new ColourTask(colour, from, mid, listener),
+					new ColourTask(colour, mid, to, listener));
+		}
+
+		private static final long serialVersionUID = 1L;
+	}
+}
@@ -1,17 +1,19 @@
 package org.cobweb.cobweb2.impl.ai;
 
+import java.util.Arrays;
+
 import org.cobweb.cobweb2.core.Agent;
 import org.cobweb.cobweb2.core.Controller;
 import org.cobweb.cobweb2.core.ControllerInput;
 import org.cobweb.cobweb2.core.ControllerListener;
 import org.cobweb.cobweb2.core.Environment;
+import org.cobweb.cobweb2.core.LocationDirection;
 import org.cobweb.cobweb2.core.SimulationInternals;
 import org.cobweb.cobweb2.core.StateParameter;
 import org.cobweb.cobweb2.core.Topology;
 import org.cobweb.cobweb2.impl.ComplexAgent;
 import org.cobweb.cobweb2.plugins.vision.SeeInfo;
 import org.cobweb.cobweb2.plugins.vision.VisionState;
-import org.cobweb.util.ArrayUtilities;
 
 public class LinearWeightsController implements Controller {
 
@@ -23,7 +25,17 @@ public class LinearWeightsController implements Controller {
 
 	private final int agentType;
 
-	public double[][] data = new double[0][0];
+	private static final int OUTPUTS = LinearWeightsControllerParams.OUTPUT_COUNT;
+
+	/**
+	 * Weight matrix stored row-major: the weight of input v for output eq is at v * OUTPUTS + eq
+	 */
+	private final double[] weights;
+
+	/**
+	 * Number of inputs the weights have rows for
+	 */
+	private final int rows;
 
 	public LinearWeightsController(SimulationInternals sim, LinearWeightsControllerParams params, int agentType) {
 		this.simulator = sim;
@@ -31,7 +43,12 @@ public class LinearWeightsController implements Controller {
 		this.params = params.agentParams[agentType];
 		this.agentType = agentType;
 
-		this.data = ArrayUtilities.clone(this.params.dataInitial);
+		double[][] initial = this.params.dataInitial;
+		this.rows = initial.length;
+		this.weights = new double[rows * OUTPUTS];
+		for (int v = 0; v < rows; v++) {
+			System.arraycopy(initial[v], 0, weights, v * OUTPUTS, OUTPUTS);
+		}
 	}
 
 	protected LinearWeightsController(LinearWeightsController parent) {
@@ -40,7 +57,8 @@ public class LinearWeightsController implements Controller {
 		this.params = parent.params;
 		this.agentType = parent.agentType;
 
-		this.data = ArrayUtilities.clone(parent.data);
+		this.rows = parent.rows;
+		this.weights = parent.weights.clone();
 		mutate(params.mutationRate);
 	}
 
@@ -50,12 +68,11 @@ public class LinearWeightsController implements Controller {
 		this.params = parent1.params;
 		this.agentType = parent1.agentType;
 
-		this.data = ArrayUtilities.clone(parent1.data);
-		for (int i = 0; i < data.length; i++) {
-			for (int j = 0; j < data[i].length; j++) {
-				if (simulator.getRandom().nextBoolean()) {
-					data[i][j] = parent2.data[i][j];
-				}
+		this.rows = parent1.rows;
+		this.weights = parent1.weights.clone();
+		for (int i = 0; i < weights.length; i++) {
+			if (simulator.getRandom().nextBoolean()) {
+				weights[i] = parent2.weights[i];
 			}
 		}
 		mutate(params.mutationRate);
@@ -63,6 +80,26 @@ public class LinearWeightsController implements Controller {
 
 	private static int ENERGY_THRESHOLD = 160;
 
+	/**
+	 * Inputs are put together in a buffer that belongs to the thread running the agent, and only
+	 * copied out when a listener asks for them.
+	 */
+	private static final ThreadLocal<double[]> scratch = new ThreadLocal<double[]>() {
+		@Override
+		protected double[] initialValue() {
+			return new double[0];
+		}
+	};
+
+	private static double[] scratch(int size) {
+		double[] buffer = scratch.get();
+		if (buffer.length < size) {
+			buffer = new double[size];
+			scratch.set(buffer);
+		}
+		return buffer;
+	}
+
 	public class LWInput implements ControllerInput {
 		public double[] inputs;
 
@@ -72,12 +109,12 @@ public class LinearWeightsController implements Controller {
 
 		@Override
 		public void mutate(float adjustmentStrength) {
-			for (int eq = 0; eq < data[0].length; eq++) {
+			for (int eq = 0; eq < OUTPUTS; eq++) {
 				for (int v = 0; v < inputs.length; v++) {
 					// variables with stronger inputs are adjusted more
 					double strength = adjustmentStrength * Math.abs(inputs[v]);
-					double x = data[v][eq] + simulator.getRandom().nextGaussian() * strength;
-					data[v][eq] = limitOutput(x);
+					double x = weights[v * OUTPUTS + eq] + simulator.getRandom().nextGaussian() * strength;
+					weights[v * OUTPUTS + eq] = limitOutput(x);
 				}
 			}
 		}
@@ -99,67 +136,68 @@ public class LinearWeightsController implements Controller {
 		int type = get.getType();
 		int dist = get.getDist();
 
+		StateParameter[] stateParameters = simulator.getStateParameters();
+		int inputCount = LinearWeightsControllerParams.INPUT_COUNT + stateParameters.length;
+		LocationDirection position = agent.getPosition();
+
 		/* careful with this block, eclipse likes to screw up the tabs!
 		 * if it breaks upon saving, undo and save again, this should save it without breaking
 		 */
-		double variables[] = new double[LinearWeightsControllerParams.INPUT_COUNT + simulator.getStatePluginKeys().size()];
+		double variables[] = scratch(inputCount);
 		variables[0] = 1.0;
 		variables[1] = ((double) agent.getEnergy() / (ENERGY_THRESHOLD));
 		variables[2] = type == Environment.FLAG_AGENT ?	(get.getMaxDistance() - dist) / (double) get.getMaxDistance() : 0;
 		variables[3] = type == Environment.FLAG_FOOD ? (get.getMaxDistance() - dist) / (double) get.getMaxDistance() : 0;
 		variables[4] = type == Environment.FLAG_STONE || type == Environment.FLAG_DROP ? ((double) get.getMaxDistance() - dist) / 4 : 0;
 		variables[5] = simulator.getTopology()
-				.getRotationBetween(Topology.NORTH, agent.getPosition().direction)
+				.getRotationBetween(Topology.NORTH, position.direction)
 				.ordinal() / 2.0;
 		variables[6] = agent.getMemoryBuffer();
 		variables[7] = agent.getCommInbox();
 		variables[8] = Math.max(agent.getAge() / 100.0, 2);
 		variables[9] = simulator.getRandom().nextGaussian();
 
-		variables[10] = agent.getPosition().direction.equals(Topology.NORTH) ? 1 : 0;
-		variables[11] = agent.getPosition().direction.equals(Topology.EAST) ? 1 : 0;
-		variables[12] = agent.getPosition().direction.equals(Topology.SOUTH) ? 1 : 0;
-		variables[13] = agent.getPosition().direction.equals(Topology.WEST) ? 1 : 0;
-
-		{
-			int i = 14;
-			for (String plugin : simulator.getStatePluginKeys()) {
-				StateParameter sp = simulator.getStateParameter(plugin);
-				variables[i] = sp.getValue(agent);
-				i++;
-			}
+		variables[10] = position.direction.equals(Topology.NORTH) ? 1 : 0;
+		variables[11] = position.direction.equals(Topology.EAST) ? 1 : 0;
+		variables[12] = position.direction.equals(Topology.SOUTH) ? 1 : 0;
+		variables[13] = position.direction.equals(Topology.WEST) ? 1 : 0;
+
+		for (int i = 0; i < stateParameters.length; i++) {
+			variables[LinearWeightsControllerParams.INPUT_COUNT + i] = stateParameters[i].getValue(agent);
 		}
 
-		inputCallback.beforeControl(agent, new LWInput(variables));
+		if (inputCallback.needsControlInput(agent))
+			inputCallback.beforeControl(agent, new LWInput(Arrays.copyOf(variables, inputCount)));
 
+		// One sum per output, going down the rows of the weights together
 		double memout = 0.0;
 		double commout = 0.0;
 		double left = 0.0;
 		double right = 0.0;
 		double step = 0.0;
 		double asexflag = 0.0;
-		for (int eq = 0; eq < LinearWeightsControllerParams.OUTPUT_COUNT; eq++) {
-			double res = 0.0;
-			for (int v = 0; v < variables.length; v++) {
-				res += data[v][eq] * variables[v];
-			}
-			res = limitOutput(res);
-
-			if (eq == 0)
-				memout = res;
-			else if (eq == 1)
-				commout = res;
-			else if (eq == 2)
-				left = res;
-			else if (eq == 3)
-				right = res;
-			else if (eq == 4)
-				step = res;
-			else if (eq == 5)
-				asexflag = res;
-
-			stats.updateStats(eq, res);
+		for (int v = 0, row = 0; v < inputCount; v++, row += OUTPUTS) {
+			double x = variables[v];
+			memout += weights[row] * x;
+			commout += weights[row + 1] * x;
+			left += weights[row + 2] * x;
+			right += weights[row + 3] * x;
+			step += weights[row + 4] * x;
+			asexflag += weights[row + 5] * x;
 		}
+		memout = limitOutput(memout);
+		commout = limitOutput(commout);
+		left = limitOutput(left);
+		right = limitOutput(right);
+		step = limitOutput(step);
+		asexflag = limitOutput(asexflag);
+
+		stats.updateStats(0, memout);
+		stats.updateStats(1, commout);
+		stats.updateStats(2, left);
+		stats.updateStats(3, right);
+		stats.updateStats(4, step);
+		stats.updateStats(5, asexflag);
 
 		agent.setMemoryBuffer(memout);
 		agent.setCommOutbox(commout);
@@ -174,11 +212,11 @@ public class LinearWeightsController implements Controller {
 	}
 
 	private void mutate(float mutation) {
-		double mutationCounter = data.length * data[0].length * mutation;
+		double mutationCounter = rows * OUTPUTS * mutation;
 		while (mutationCounter > 1) {
-			int i = simulator.getRandom().nextInt(data.length);
-			int j = simulator.getRandom().nextInt(data[i].length);
-			data[i][j] += simulator.getRandom().nextGaussian() * 0.5;
+			int i = simulator.getRandom().nextInt(rows);
+			int j = simulator.getRandom().nextInt(OUTPUTS);
+			weights[i * OUTPUTS + j] += simulator.getRandom().nextGaussian() * 0.5;
 			mutationCounter -= 1;
 		}
 	}
@@ -202,11 +240,9 @@ public class LinearWeightsController implements Controller {
 
 	public double similarity(LinearWeightsController other) {
 		int diff = 0;
-		for (int i = 0; i < data.length; i++) {
-			for (int j = 0; j < data[i].length; j++) {
-				diff += Math.abs(data[i][j] * data[i][j] - other.data[i][j]
-						* other.data[i][j]);
-			}
+		for (int i = 0; i < weights.length; i++) {
+			diff += Math.abs(weights[i] * weights[i] - other.weights[i]
+					* other.weights[i]);
 		}
 		return Math.max(0, (100.0 - diff) / 100.0);
 	}
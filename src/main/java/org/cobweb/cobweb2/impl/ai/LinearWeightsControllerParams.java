@@ -1,13 +1,17 @@
 package org.cobweb.cobweb2.impl.ai;
 
+import java.util.Arrays;
+
 import org.cobweb.cobweb2.core.AgentFoodCountable;
 import org.cobweb.cobweb2.core.Controller;
 import org.cobweb.cobweb2.core.SimulationInternals;
+import org.cobweb.cobweb2.core.SlottedStats;
 import org.cobweb.cobweb2.impl.ControllerParams;
 import org.cobweb.cobweb2.impl.SimulationParams;
 import org.cobweb.cobweb2.plugins.PerAgentParams;
 
-public class LinearWeightsControllerParams extends PerAgentParams<LinearWeightAgentParam> implements ControllerParams {
+public class LinearWeightsControllerParams extends PerAgentParams<LinearWeightAgentParam> implements ControllerParams,
+		SlottedStats {
 
 	private final transient SimulationParams simParam;
 
@@ -49,9 +53,51 @@ public class LinearWeightsControllerParams extends PerAgentParams<LinearWeightAg
 
 	private transient double[] runningOutputMean = new double[OUTPUT_COUNT];
 
+	private transient SimulationInternals updateSlots;
+
+	/**
+	 * Running mean of the values gathered in each update slot during a tick, starting from 0
+	 */
+	private transient double[][] slotOutputMean = new double[0][];
+
+	/**
+	 * Factor the running mean decays by over the values gathered in each update slot
+	 */
+	private transient double[][] slotDecay = new double[0][];
+
 	public void updateStats(int output, double value) {
-		runningOutputMean[output] *= (1 - UPDATE_RATE);
-		runningOutputMean[output] += UPDATE_RATE * value;
+		int slot = updateSlots == null ? -1 : updateSlots.getUpdateSlot();
+		if (slot < 0) {
+			runningOutputMean[output] *= (1 - UPDATE_RATE);
+			runningOutputMean[output] += UPDATE_RATE * value;
+		} else {
+			slotOutputMean[slot][output] *= (1 - UPDATE_RATE);
+			slotOutputMean[slot][output] += UPDATE_RATE * value;
+			slotDecay[slot][output] *= (1 - UPDATE_RATE);
+		}
+	}
+
+	@Override
+	public void setUpdateSlots(SimulationInternals sim, int slots) {
+		updateSlots = sim;
+		slotOutputMean = new double[slots][OUTPUT_COUNT];
+		slotDecay = new double[slots][OUTPUT_COUNT];
+		for (double[] decay : slotDecay)
+			Arrays.fill(decay, 1);
+	}
+
+	/**
+	 * Same as having applied the values of each slot to the running mean one after another
+	 */
+	@Override
+	public void mergeUpdateSlots() {
+		for (int slot = 0; slot < slotOutputMean.length; slot++) {
+			for (int i = 0; i < OUTPUT_COUNT; i++) {
+				runningOutputMean[i] = runningOutputMean[i] * slotDecay[slot][i] + slotOutputMean[slot][i];
+				slotOutputMean[slot][i] = 0;
+				slotDecay[slot][i] = 1;
+			}
+		}
 	}
 
 	public double[] getRunningOutputMean() {
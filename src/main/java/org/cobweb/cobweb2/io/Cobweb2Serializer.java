@@ -155,7 +155,7 @@ public class Cobweb2Serializer {
 		}
 
 		Element plugins = d.createElement("Plugins");
-		for (Entry<Class<? extends AgentState>, AgentState> e : a.extraState.entrySet()) {
+		for (Entry<Class<? extends AgentState>, AgentState> e : a.getStates().entrySet()) {
 			AgentState pluginState = e.getValue();
 			if (pluginState.isTransient())
 				continue;
@@ -0,0 +1,65 @@
+package org.cobweb.cobweb2.plugins;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * Numbers each kind of AgentState, so agents can keep their states in an array indexed by slot.
+ * Slots are handed out the first time a state class is seen and never change after that.
+ */
+public final class AgentStateSlots {
+
+	private static final ClassValue<Integer> slots = new ClassValue<Integer>() {
+		@Override
+		protected Integer computeValue(Class<?> type) {
+			return register(type);
+		}
+	};
+
+	private static final Map<Class<?>, Integer> registered = new HashMap<>();
+
+	private static final List<Class<? extends AgentState>> types = new ArrayList<>();
+
+	private static volatile int count = 0;
+
+	private AgentStateSlots() {
+		// static only
+	}
+
+	/**
+	 * @return slot of the given kind of state
+	 */
+	public static int slotOf(Class<? extends AgentState> type) {
+		return slots.get(type);
+	}
+
+	/**
+	 * @return kind of state kept in the given slot
+	 */
+	public static synchronized Class<? extends AgentState> typeOf(int slot) {
+		return types.get(slot);
+	}
+
+	/**
+	 * @return number of slots handed out so far
+	 */
+	public static int count() {
+		return count;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static synchronized int register(Class<?> type) {
+		// ClassValue may ask more than once for the same class when threads race
+		Integer slot = registered.get(type);
+		if (slot == null) {
+			slot = types.size();
+			types.add((Class<? extends AgentState>) type);
+			registered.put(type, slot);
+			count = types.size();
+		}
+		return slot;
+	}
+}
@@ -1,12 +1,26 @@
 package org.cobweb.cobweb2.plugins;
 
+import java.lang.reflect.Array;
 import java.util.*;
 
 import org.cobweb.cobweb2.core.*;
 
 
+/**
+ * Passes agent events on to the registered mutators.
+ *
+ * Mutators are registered in sets, which keep them in the order they were added. Events are
+ * dispatched from arrays copied out of the sets whenever the registered mutators change, so
+ * dispatching an event does not allocate or walk linked nodes.
+ *
+ * There is one array per agent type for each kind of event. A {@link SelectiveMutator} is left out
+ * of the arrays for the events and agent types it is not active for, so plugins disabled by the
+ * simulation configuration are not called at all.
+ */
 public class MutatorListener implements AgentListener {
 
+	private final RandomSource randomSource;
+
 	private Set<SpawnMutator> spawnMutators = new LinkedHashSet<>();
 	private Set<ContactMutator> contactMutators = new LinkedHashSet<>();
 	private Set<StepMutator> stepMutators = new LinkedHashSet<>();
@@ -19,6 +33,35 @@ public class MutatorListener implements AgentListener {
 	private Set<LocationMutator> locationMutators = new LinkedHashSet<>();
 	private Set<AgentMutator> allMutators = new HashSet<>();
 
+	private SpawnMutator[] spawnArray = new SpawnMutator[0];
+	private ContactMutator[] contactArray = new ContactMutator[0];
+	private StepMutator[] stepArray = new StepMutator[0];
+	private EnergyMutator[] energyArray = new EnergyMutator[0];
+	private UpdateMutator[] updateArray = new UpdateMutator[0];
+	private ConsumptionMutator[] consumptionArray = new ConsumptionMutator[0];
+	private ControllerInputMutator[] controllerArray = new ControllerInputMutator[0];
+	private MoveMutator[] moveArray = new MoveMutator[0];
+	private LocationMutator[] locationArray = new LocationMutator[0];
+
+	private SpawnMutator[][] spawnByType = new SpawnMutator[0][];
+	private ContactMutator[][] contactByType = new ContactMutator[0][];
+	private StepMutator[][] stepByType = new StepMutator[0][];
+	private EnergyMutator[][] energyByType = new EnergyMutator[0][];
+	private UpdateMutator[][] updateByType = new UpdateMutator[0][];
+	private ConsumptionMutator[][] consumptionByType = new ConsumptionMutator[0][];
+	private ControllerInputMutator[][] controllerByType = new ControllerInputMutator[0][];
+	private MoveMutator[][] moveByType = new MoveMutator[0][];
+	private LocationMutator[][] locationByType = new LocationMutator[0][];
+
+	private int agentTypes = 0;
+
+	/**
+	 * @param randomSource picks between mutators that disagree on where an agent steps
+	 */
+	public MutatorListener(RandomSource randomSource) {
+		this.randomSource = randomSource;
+	}
+
 	public void addMutator(AgentMutator mutator) {
 		if (mutator instanceof SpawnMutator)
 			spawnMutators.add((SpawnMutator) mutator);
@@ -52,6 +95,7 @@ public class MutatorListener implements AgentListener {
 		}
 
 		allMutators.add(mutator);
+		compile();
 	}
 
 
@@ -68,6 +112,7 @@ public class MutatorListener implements AgentListener {
 		locationMutators.remove(mutator);
 
 		allMutators.remove(mutator);
+		compile();
 	}
 
 	public void clearMutators() {
@@ -83,6 +128,67 @@ public class MutatorListener implements AgentListener {
 		locationMutators.clear();
 
 		allMutators.clear();
+		compile();
+	}
+
+	/**
+	 * Copies the registered mutators into the dispatch arrays.
+	 */
+	private void compile() {
+		spawnArray = spawnMutators.toArray(new SpawnMutator[spawnMutators.size()]);
+		contactArray = contactMutators.toArray(new ContactMutator[contactMutators.size()]);
+		stepArray = stepMutators.toArray(new StepMutator[stepMutators.size()]);
+		energyArray = energyMutators.toArray(new EnergyMutator[energyMutators.size()]);
+		updateArray = updateMutators.toArray(new UpdateMutator[updateMutators.size()]);
+		consumptionArray = consumptionMutators.toArray(new ConsumptionMutator[consumptionMutators.size()]);
+		controllerArray = controllerMutators.toArray(new ControllerInputMutator[controllerMutators.size()]);
+		moveArray = moveMutators.toArray(new MoveMutator[moveMutators.size()]);
+		locationArray = locationMutators.toArray(new LocationMutator[locationMutators.size()]);
+
+		spawnByType = byType(spawnArray, SpawnMutator.class);
+		contactByType = byType(contactArray, ContactMutator.class);
+		stepByType = byType(stepArray, StepMutator.class);
+		energyByType = byType(energyArray, EnergyMutator.class);
+		updateByType = byType(updateArray, UpdateMutator.class);
+		consumptionByType = byType(consumptionArray, ConsumptionMutator.class);
+		controllerByType = byType(controllerArray, ControllerInputMutator.class);
+		moveByType = byType(moveArray, MoveMutator.class);
+		locationByType = byType(locationArray, LocationMutator.class);
+	}
+
+	/**
+	 * Rebuilds the dispatch arrays. Must be called after the parameters of the mutators change.
+	 *
+	 * @param agentTypes number of agent types
+	 */
+	public void rebuild(int agentTypes) {
+		this.agentTypes = agentTypes;
+		compile();
+	}
+
+	/**
+	 * @return for each agent type, the mutators active for the given kind of event
+	 */
+	@SuppressWarnings("unchecked")
+	private <T> T[][] byType(T[] mutators, Class<T> hook) {
+		T[][] result = (T[][]) Array.newInstance(hook, agentTypes, 0);
+		for (int type = 0; type < agentTypes; type++) {
+			List<T> active = new ArrayList<>(mutators.length);
+			for (T mutator : mutators) {
+				if (!(mutator instanceof SelectiveMutator) || ((SelectiveMutator) mutator).isActive(hook, type))
+					active.add(mutator);
+			}
+			result[type] = active.toArray((T[]) Array.newInstance(hook, active.size()));
+		}
+		return result;
+	}
+
+	/**
+	 * @return mutators active for the agent's type, or all of them if the type is not known yet
+	 */
+	private static <T> T[] select(T[][] byType, T[] all, Agent agent) {
+		int type = agent.getType();
+		return type < byType.length ? byType[type] : all;
 	}
 
 	public <T extends AgentState> boolean supportsState(Class<T> type, T value) {
@@ -94,9 +200,26 @@ public class MutatorListener implements AgentListener {
 		return false;
 	}
 
+	/**
+	 * Gives the agent a stored state through the mutator that accepts it, so the mutator can set up
+	 * anything the state needs, such as scheduled events.
+	 *
+	 * @return whether a mutator took the state
+	 */
+	@SuppressWarnings("unchecked")
+	public <T extends AgentState> boolean loadState(Agent agent, Class<T> type, T value) {
+		for (AgentMutator mutator : allMutators) {
+			if (mutator instanceof StatefulMutator && mutator.acceptsState(type, value)) {
+				((StatefulMutator<T>) mutator).loadAgentState(agent, value);
+				return true;
+			}
+		}
+		return false;
+	}
+
 	@Override
 	public boolean onNextMove(Agent agent) {
-		for (MoveMutator mut : moveMutators) {
+		for (MoveMutator mut : select(moveByType, moveArray, agent)) {
 			if (mut.overrideMove(agent)) {
 				return true;
 			}
@@ -106,95 +229,100 @@ public class MutatorListener implements AgentListener {
 
 	@Override
 	public void onContact(Agent bumper, Agent bumpee) {
-		for (ContactMutator mut : contactMutators) {
+		for (ContactMutator mut : select(contactByType, contactArray, bumper)) {
 			mut.onContact(bumper, bumpee);
 		}
 	}
 
 	@Override
 	public void onStep(Agent agent, LocationDirection from, LocationDirection to) {
-		for (StepMutator m : stepMutators) {
+		for (StepMutator m : select(stepByType, stepArray, agent)) {
 			m.onStep(agent, from, to);
 		}
 	}
 
 	@Override
 	public void onSpawn(Agent agent, Agent parent1, Agent parent2) {
-		for (SpawnMutator mutator : spawnMutators) {
+		for (SpawnMutator mutator : select(spawnByType, spawnArray, agent)) {
 			mutator.onSpawn(agent, parent1, parent2);
 		}
 	}
 
 	@Override
 	public void onSpawn(Agent agent, Agent parent) {
-		for (SpawnMutator mutator : spawnMutators) {
+		for (SpawnMutator mutator : select(spawnByType, spawnArray, agent)) {
 			mutator.onSpawn(agent, parent);
 		}
 	}
 
 	@Override
 	public void onSpawn(Agent agent) {
-		for (SpawnMutator mutator : spawnMutators) {
+		for (SpawnMutator mutator : select(spawnByType, spawnArray, agent)) {
 			mutator.onSpawn(agent);
 		}
 	}
 
 	@Override
 	public void onDeath(Agent agent) {
-		for (SpawnMutator mutator : spawnMutators) {
+		for (SpawnMutator mutator : select(spawnByType, spawnArray, agent)) {
 			mutator.onDeath(agent);
 		}
 	}
 
 	@Override
 	public void onConsumeAgent(Agent agent, Agent food) {
-		for(ConsumptionMutator mutator : consumptionMutators) {
+		for(ConsumptionMutator mutator : select(consumptionByType, consumptionArray, agent)) {
 			mutator.onConsumeAgent(agent, food);
 		}
 	}
 
 	@Override
 	public void onConsumeFood(Agent agent, int foodType) {
-		for(ConsumptionMutator mutator : consumptionMutators) {
+		for(ConsumptionMutator mutator : select(consumptionByType, consumptionArray, agent)) {
 			mutator.onConsumeFood(agent, foodType);
 		}
 	}
 
 	@Override
 	public void onEnergyChange(Agent agent, int delta, Cause cause) {
-		for(EnergyMutator mutator : energyMutators) {
+		for(EnergyMutator mutator : select(energyByType, energyArray, agent)) {
 			mutator.onEnergyChange(agent, delta, cause);
 		}
 	}
 
 	@Override
 	public void onUpdate(Agent agent) {
-		for(UpdateMutator mutator : updateMutators) {
+		for(UpdateMutator mutator : select(updateByType, updateArray, agent)) {
 			mutator.onUpdate(agent);
 		}
 	}
 
 	@Override
 	public void beforeControl(Agent agent, ControllerInput cInput) {
-		for(ControllerInputMutator mutator : controllerMutators) {
+		for(ControllerInputMutator mutator : select(controllerByType, controllerArray, agent)) {
 			mutator.onControl(agent, cInput);
 		}
 	}
 
+	@Override
+	public boolean needsControlInput(Agent agent) {
+		return select(controllerByType, controllerArray, agent).length > 0;
+	}
+
 	@Override
 	public LocationDirection onTryStep(Agent agent, LocationDirection from, LocationDirection originalTo) {
-	    List<LocationDirection> possibles = new LinkedList<>();
-		for(LocationMutator mutator : locationMutators) {
-            LocationDirection newLoc = mutator.getNewLocation(agent, from, originalTo);
-            if (!newLoc.equals(originalTo)) {
-                possibles.add(newLoc);
-            }
-		}
-		if (possibles.isEmpty()) {
-		    return originalTo;
-        } else {
-		    return possibles.get(new Random().nextInt(possibles.size()));
-        }
+		// Picks uniformly between the changed locations, keeping each new one with chance 1/count
+		LocationDirection chosen = originalTo;
+		int count = 0;
+		for (LocationMutator mutator : select(locationByType, locationArray, agent)) {
+			LocationDirection newLoc = mutator.getNewLocation(agent, from, originalTo);
+			if (!newLoc.equals(originalTo)) {
+				count++;
+				if (count == 1 || randomSource.getRandom().nextInt(count) == 0)
+					chosen = newLoc;
+			}
+		}
+		return chosen;
 	}
 
 	public List<String> logDataAgent(int type) {
@@ -0,0 +1,18 @@
+package org.cobweb.cobweb2.plugins;
+
+
+/**
+ * Mutator whose parameters can leave it with nothing to do for some events or agent types.
+ * MutatorListener does not pass it the events it is not active for.
+ */
+public interface SelectiveMutator extends AgentMutator {
+
+	/**
+	 * Called when the mutator listener rebuilds its dispatch lists, after parameters are set.
+	 *
+	 * @param hook mutator interface of the event, such as UpdateMutator.class
+	 * @param agentType type of the agent the event is for
+	 * @return whether the mutator needs the event for agents of the type
+	 */
+	public boolean isActive(Class<?> hook, int agentType);
+}
@@ -23,6 +23,14 @@ public interface StatefulMutator<T extends AgentState> extends AgentMutator {
 	 */
 	public abstract boolean hasAgentState(Agent agent);
 
+	/**
+	 * Gives the agent a state that was stored earlier, such as one from a saved population.
+	 *
+	 * @param agent agent to give the state to
+	 * @param state state accepted by acceptsState()
+	 */
+	public void loadAgentState(Agent agent, T state);
+
 	/**
 	 * Returns the Class of the state object
 	 * @return class that can be used when generic types are erased
@@ -11,13 +11,20 @@ public abstract class StatefulMutatorBase<T extends AgentState> implements State
 
 	private final Class<T> stateClass;
 
+	/**
+	 * Where agents keep the state, see {@link AgentStateSlots}
+	 */
+	private final int slot;
+
 	protected StatefulMutatorBase(Class<T> stateClass) {
 		this.stateClass = stateClass;
+		this.slot = AgentStateSlots.slotOf(stateClass);
 	}
 
 	@Override
 	public T getAgentState(Agent agent) {
-		T result = ((ComplexAgent)agent).getState(getStateClass());
+		@SuppressWarnings("unchecked")
+		T result = (T) ((ComplexAgent)agent).getState(slot);
 		return result;
 	}
 
@@ -27,11 +34,18 @@ public abstract class StatefulMutatorBase<T extends AgentState> implements State
 	}
 
 	protected T removeAgentState(Agent agent) {
-		return ((ComplexAgent)agent).removeState(getStateClass());
+		@SuppressWarnings("unchecked")
+		T removed = (T) ((ComplexAgent)agent).removeState(slot);
+		return removed;
 	}
 
 	protected void setAgentState(Agent agent, T state) {
-		((ComplexAgent)agent).setState(getStateClass(), state);
+		((ComplexAgent)agent).setState(slot, state);
+	}
+
+	@Override
+	public void loadAgentState(Agent agent, T state) {
+		setAgentState(agent, state);
 	}
 
 	@Override
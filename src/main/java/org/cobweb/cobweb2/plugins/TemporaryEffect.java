@@ -28,9 +28,20 @@ public class TemporaryEffect {
 		parameter.modifyValue(source, target, factor);
 	}
 
+	public void remove() {
+		parameter.unmodifyValue(source, target);
+	}
+
+	/**
+	 * @return first tick at which the effect is no longer active
+	 */
+	public long getEndTime() {
+		return startTime + duration + 1;
+	}
+
 	public boolean updateIsAlive(long time) {
-		if (time - startTime > duration) {
-			parameter.unmodifyValue(source, target);
+		if (time >= getEndTime()) {
+			remove();
 			return false;
 		}
 		return true;
@@ -21,9 +21,10 @@ public abstract class AbioticFactor implements ParameterSerializable {
 
 	/**
 	 * @param sim simulation time and space info
+	 * @return true if getValue() may now return different values
 	 */
-	public void update(SimulationTimeSpace sim) {
-		// nothing
+	public boolean update(SimulationTimeSpace sim) {
+		return false;
 	}
 
 	public abstract AbioticFactor copy();
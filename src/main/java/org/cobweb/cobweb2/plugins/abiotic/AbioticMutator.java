@@ -7,6 +7,8 @@ import org.cobweb.cobweb2.Simulation;
 import org.cobweb.cobweb2.core.*;
 import org.cobweb.cobweb2.impl.ComplexAgent;
 import org.cobweb.cobweb2.impl.ComplexEnvironment;
+import org.cobweb.cobweb2.impl.ParallelTickEngine;
+import org.cobweb.cobweb2.impl.ParallelTickEngine.RangeTask;
 import org.cobweb.cobweb2.plugins.*;
 
 /**
@@ -17,6 +19,8 @@ import org.cobweb.cobweb2.plugins.*;
 public class AbioticMutator extends StatefulMutatorBase<AbioticState> implements StepMutator, StatePlugin,
 		EnvironmentMutator, SpawnMutator, LocationMutator {
 
+	private static final BarrierCause BARRIER_CAUSE = new BarrierCause();
+
 	public AbioticMutator() {
 		super(AbioticState.class);
 	}
@@ -25,17 +29,58 @@ public class AbioticMutator extends StatefulMutatorBase<AbioticState> implements
 
 	private SimulationTimeSpace sim;
 
+	/**
+	 * Value of each factor at every cell, by cell index. A factor's values are worked out again
+	 * whenever its update() reports a change.
+	 */
+	private float[][] rasters = new float[0][];
+
+	private ParallelTickEngine tickEngine;
+
 	/**
 	 * @param loc location.
 	 * @return The abiotic factor value at location
 	 */
 	public float getValue(int factor, Location loc) {
-		float x = (float) loc.x / sim.getTopology().width;
-		float y = (float) loc.y / sim.getTopology().height;
+		return rasters[factor][sim.getTopology().getCell(loc)];
+	}
 
-		AbioticFactor abioticFactor = params.factors.get(factor);
-		float value = abioticFactor.getValue(x, y);
-		return value;
+	/**
+	 * @param cell cell index, see {@link Topology#getCell(Location)}
+	 * @return The abiotic factor value at cell
+	 */
+	public float getValue(int factor, int cell) {
+		return rasters[factor][cell];
+	}
+
+	/**
+	 * @return value of the factor at every cell, by cell index. Must not be modified.
+	 */
+	public float[] getValues(int factor) {
+		return rasters[factor];
+	}
+
+	private void rasterize(int factor) {
+		final AbioticFactor abioticFactor = params.factors.get(factor);
+		final float[] raster = rasters[factor];
+		final int width = sim.getTopology().width;
+		final int height = sim.getTopology().height;
+
+		RangeTask rows = new RangeTask() {
+			@Override
+			public void run(int from, int to) {
+				for (int y = from; y < to; y++) {
+					for (int x = 0; x < width; x++) {
+						raster[y * width + x] = abioticFactor.getValue((float) x / width, (float) y / height);
+					}
+				}
+			}
+		};
+
+		if (tickEngine != null)
+			tickEngine.forEachRange(height, rows);
+		else
+			rows.run(0, height);
 	}
 
 	/**
@@ -66,7 +111,7 @@ public class AbioticMutator extends StatefulMutatorBase<AbioticState> implements
         } else if (toValue > agent.getEnergy() && fromValue > agent.getEnergy()) {
             // Case where agent in both locations are too high energy
             if (params.factors.get(factor).getMin() > agent.getEnergy()) {
-                agent.changeEnergy(-agent.getEnergy() - 1, new BarrierCause()); // If there is no place that can support an agent of such energy
+                agent.changeEnergy(-agent.getEnergy() - 1, BARRIER_CAUSE); // If there is no place that can support an agent of such energy
             } else {
                 for (int k = 0; k < Math.max(sim.getTopology().width, sim.getTopology().height); k++) {
                     LocationDirection newLoc = new LocationDirection(sim.getTopology().getRandomLocation(), sim.getTopology().getRandomDirection());
@@ -158,6 +203,20 @@ public class AbioticMutator extends StatefulMutatorBase<AbioticState> implements
 		for (int i = 0 ; i < causeKeys.length; i++) {
 			causeKeys[i] = new CauseKey(i);
 		}
+
+		Topology topology = sim.getTopology();
+		rasters = new float[params.factors.size()][topology.width * topology.height];
+		for (int i = 0; i < rasters.length; i++) {
+			rasterize(i);
+		}
+	}
+
+	/**
+	 * @param tickEngine engine whose worker threads compute factor values, null to compute them on
+	 * the simulation thread
+	 */
+	public void setTickEngine(ParallelTickEngine tickEngine) {
+		this.tickEngine = tickEngine;
 	}
 
 	private CauseKey[] causeKeys;
@@ -210,8 +269,9 @@ public class AbioticMutator extends StatefulMutatorBase<AbioticState> implements
 
 	@Override
 	public void update() {
-		for (AbioticFactor f : params.factors) {
-			f.update(sim);
+		for (int i = 0; i < params.factors.size(); i++) {
+			if (params.factors.get(i).update(sim))
+				rasterize(i);
 		}
 	}
 
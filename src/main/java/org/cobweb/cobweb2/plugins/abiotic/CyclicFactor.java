@@ -36,8 +36,10 @@ public abstract class CyclicFactor extends AbioticFactor {
 	protected float time = 0;
 
 	@Override
-	public void update(SimulationTimeSpace sim) {
-		super.update(sim);
+	public boolean update(SimulationTimeSpace sim) {
+		boolean changed = super.update(sim);
+		float oldTime = time;
+
 		time = ((sim.getTime() + cycleOffset) % cyclePeriod) / (float) cyclePeriod;
 		while (time < 0)
 			time += 1;
@@ -52,6 +54,8 @@ public abstract class CyclicFactor extends AbioticFactor {
 				time < 0.5
 				? Math.pow(time, timeExponent) * midpointScale
 						: 1 - Math.pow(1 - time, timeExponent) * midpointScale);
+
+		return changed || time != oldTime;
 	}
 
 	public enum CycleMode {
@@ -15,6 +15,16 @@ public abstract class BroadcastPacket {
 
 	public final Location location;
 
+	/**
+	 * Cell the packet was sent from, set by PacketConduit
+	 */
+	int cell;
+
+	/**
+	 * Position in the order packets were sent, set by PacketConduit
+	 */
+	long order;
+
 	public BroadcastPacket(ComplexAgent dispatcherId) {
 		this.sender = dispatcherId;
 		this.location = dispatcherId.getPosition();
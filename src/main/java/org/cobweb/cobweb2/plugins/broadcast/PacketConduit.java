@@ -1,25 +1,90 @@
 package org.cobweb.cobweb2.plugins.broadcast;
 
-import java.util.Collection;
-import java.util.Iterator;
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
 
 import org.cobweb.cobweb2.core.Cause;
 import org.cobweb.cobweb2.core.Location;
+import org.cobweb.cobweb2.core.SpanVisitor;
 import org.cobweb.cobweb2.core.Topology;
 import org.cobweb.cobweb2.impl.ComplexAgent;
 import org.cobweb.cobweb2.plugins.EnvironmentMutator;
 
+/**
+ * Holds the broadcast packets currently in the air.
+ *
+ * Packets are also filed into square buckets of the grid by the cell they were sent from, so an
+ * agent looking for a packet only checks the buckets within reach of the widest broadcast.
+ *
+ * Agents only look for packets when broadcasts are enabled, and broadcasts keep agent updates on
+ * a single thread, so lookups share their scratch space.
+ */
 public class PacketConduit implements EnvironmentMutator {
 
+	/**
+	 * Width and height of a bucket, in cells
+	 */
+	private static final int BUCKET_SIZE = 8;
+
 	private boolean broadcastBlocked = false;
 
-	private Collection<BroadcastPacket> currentPackets = new LinkedList<BroadcastPacket>();
+	private int broadcastsPerTick = 1;
+
+	private int broadcastsThisTick = 0;
+
+	/**
+	 * Packets in the order they were sent
+	 */
+	private List<BroadcastPacket> currentPackets = new ArrayList<BroadcastPacket>();
+
+	private long nextOrder = 0;
+
+	/**
+	 * Largest range of any current packet
+	 */
+	private int maxRange = 0;
 
 	private Topology topology;
 
-	public void setParams(Topology topo) {
+	private int bucketsX;
+
+	private List<BroadcastPacket>[] buckets;
+
+	/**
+	 * Last lookup that checked each bucket, so a bucket is only checked once per lookup
+	 */
+	private int[] bucketStamps;
+
+	private int stamp = 0;
+
+	private final List<BroadcastPacket> candidates = new ArrayList<BroadcastPacket>();
+
+	/**
+	 * @param topo grid the packets are sent on
+	 * @param broadcastsPerTick number of packets that can be sent each tick, 0 for no limit
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public void setParams(Topology topo, int broadcastsPerTick) {
 		this.topology = topo;
+		this.broadcastsPerTick = broadcastsPerTick;
+
+		bucketsX = (topo.width + BUCKET_SIZE - 1) / BUCKET_SIZE;
+		int bucketsY = (topo.height + BUCKET_SIZE - 1) / BUCKET_SIZE;
+		buckets = new List[bucketsX * bucketsY];
+		for (int i = 0; i < buckets.length; i++)
+			buckets[i] = new ArrayList<BroadcastPacket>();
+		bucketStamps = new int[buckets.length];
+
+		// Packets kept from before the grid changed
+		List<BroadcastPacket> kept = currentPackets;
+		currentPackets = new ArrayList<BroadcastPacket>(kept.size());
+		for (BroadcastPacket packet : kept) {
+			if (topology.isValidLocation(packet.location))
+				file(packet);
+		}
+		updateMaxRange();
 	}
 
 	/**
@@ -28,10 +93,26 @@ public class PacketConduit implements EnvironmentMutator {
 	 * @param packet packet
 	 */
 	public void addPacketToList(BroadcastPacket packet) {
-		if (!broadcastBlocked)
-			currentPackets.add(packet);
-		// TODO: allow more brodcasts?
-		blockBroadcast();
+		if (broadcastBlocked)
+			return;
+
+		packet.order = nextOrder++;
+		file(packet);
+		maxRange = Math.max(maxRange, packet.range);
+
+		broadcastsThisTick++;
+		if (broadcastsPerTick > 0 && broadcastsThisTick >= broadcastsPerTick)
+			blockBroadcast();
+	}
+
+	private void file(BroadcastPacket packet) {
+		packet.cell = topology.getCell(packet.location);
+		currentPackets.add(packet);
+		buckets[bucketOf(topology.getCellX(packet.cell), topology.getCellY(packet.cell))].add(packet);
+	}
+
+	private int bucketOf(int x, int y) {
+		return (y / BUCKET_SIZE) * bucketsX + x / BUCKET_SIZE;
 	}
 
 	public void blockBroadcast() {
@@ -41,30 +122,74 @@ public class PacketConduit implements EnvironmentMutator {
 	// with every time step, the persistence of the packets should be
 	// decremented
 	public void decrementPersistence() {
-		Iterator<BroadcastPacket> i = currentPackets.iterator();
-		while (i.hasNext()) {
-			BroadcastPacket packet = i.next();
-			if (!packet.updateCheckActive())
-				i.remove();
+		List<BroadcastPacket> previous = currentPackets;
+		currentPackets = new ArrayList<BroadcastPacket>(previous.size());
+		for (List<BroadcastPacket> bucket : buckets)
+			bucket.clear();
+
+		for (BroadcastPacket packet : previous) {
+			if (packet.updateCheckActive())
+				file(packet);
 		}
+		updateMaxRange();
+	}
+
+	private void updateMaxRange() {
+		maxRange = 0;
+		for (BroadcastPacket packet : currentPackets)
+			maxRange = Math.max(maxRange, packet.range);
 	}
 
 	public void unblockBroadcast() {
 		broadcastBlocked = false;
+		broadcastsThisTick = 0;
 	}
 
 	public void clearPackets() {
 		currentPackets.clear();
+		if (buckets != null) {
+			for (List<BroadcastPacket> bucket : buckets)
+				bucket.clear();
+		}
+		maxRange = 0;
 	}
 
-	public BroadcastPacket findPacket(Location position, ComplexAgent receiver) {
+	/**
+	 * @return the earliest sent packet that is in range of the position and meant for the receiver,
+	 * null if there is none
+	 */
+	public BroadcastPacket findPacket(Location position, final ComplexAgent receiver) {
 		// TODO: return more than 1 packet?
 		// TODO: return closest packet?
-		for (BroadcastPacket commPacket : currentPackets) {
-			double distance = topology.getDistance(position, commPacket.location);
+		if (currentPackets.isEmpty())
+			return null;
+
+		final int receiverCell = topology.getCell(position);
+		stamp++;
+		candidates.clear();
+
+		// Whole buckets worth of reach, so only a few different areas are ever asked for.
+		// Once the area covers a good part of the grid it is quicker to check every bucket.
+		int reach = (maxRange + BUCKET_SIZE - 1) / BUCKET_SIZE * BUCKET_SIZE;
+		if (4 * reach >= Math.min(topology.width, topology.height)) {
+			for (int b = 0; b < buckets.length; b++)
+				addCandidates(b, receiverCell);
+		} else {
+			topology.forEachSpanInArea(receiverCell, reach, new SpanVisitor() {
+				@Override
+				public void visit(int row, int fromX, int toX) {
+					for (int bx = fromX / BUCKET_SIZE; bx <= toX / BUCKET_SIZE; bx++)
+						addCandidates(bucketOf(bx * BUCKET_SIZE, row), receiverCell);
+				}
+			});
+		}
+
+		if (candidates.size() > 1)
+			Collections.sort(candidates, SEND_ORDER);
+
+		for (BroadcastPacket commPacket : candidates) {
 			ComplexAgent s = commPacket.sender;
-			if (distance < commPacket.range
-					&& !s.equals(receiver)
+			if (!s.equals(receiver)
 					&& (!s.params.broadcastSameTypeOnly || receiver.getType() == s.getType())
 					&& (s.params.broadcastMinSimilarity.getValue() == 0f || s.calculateSimilarity(receiver) >= s.params.broadcastMinSimilarity.getValue())
 					) {
@@ -74,6 +199,24 @@ public class PacketConduit implements EnvironmentMutator {
 		return null;
 	}
 
+	private void addCandidates(int bucket, int receiverCell) {
+		if (bucketStamps[bucket] == stamp)
+			return;
+		bucketStamps[bucket] = stamp;
+
+		for (BroadcastPacket packet : buckets[bucket]) {
+			if (topology.getDistanceSquared(receiverCell, packet.cell) < (long) packet.range * packet.range)
+				candidates.add(packet);
+		}
+	}
+
+	private static final Comparator<BroadcastPacket> SEND_ORDER = new Comparator<BroadcastPacket>() {
+		@Override
+		public int compare(BroadcastPacket a, BroadcastPacket b) {
+			return Long.compare(a.order, b.order);
+		}
+	};
+
 	@Override
 	public void update() {
 		decrementPersistence();
@@ -95,4 +238,4 @@ public class PacketConduit implements EnvironmentMutator {
 		// nothing
 	}
 
-}
\ No newline at end of file
+}
@@ -8,24 +8,24 @@ import java.util.LinkedList;
 import java.util.List;
 
 import org.cobweb.cobweb2.core.Agent;
-import org.cobweb.cobweb2.core.SimulationTimeSpace;
+import org.cobweb.cobweb2.core.SimulationInternals;
 import org.cobweb.cobweb2.plugins.ContactMutator;
 import org.cobweb.cobweb2.plugins.LoggingMutator;
 import org.cobweb.cobweb2.plugins.SpawnMutator;
 import org.cobweb.cobweb2.plugins.StatefulMutatorBase;
-import org.cobweb.cobweb2.plugins.UpdateMutator;
 import org.cobweb.util.ArrayUtilities;
 
 /**
  * Simulates various diseases that can affect agents.
+ * Recovery is scheduled when an agent gets sick rather than checked on every update.
  */
-public class DiseaseMutator extends StatefulMutatorBase<DiseaseState> implements ContactMutator, SpawnMutator, LoggingMutator, UpdateMutator {
+public class DiseaseMutator extends StatefulMutatorBase<DiseaseState> implements ContactMutator, SpawnMutator, LoggingMutator {
 
 	private DiseaseParams params;
 
 	private int sickCount[] = new int[0];
 
-	private SimulationTimeSpace simulation;
+	private SimulationInternals simulation;
 
 	public DiseaseMutator() {
 		super(DiseaseState.class);
@@ -72,13 +72,50 @@ public class DiseaseMutator extends StatefulMutatorBase<DiseaseState> implements
 			DiseaseAgentParams agentParams = params.agentParams[agent.getType()];
 			agentParams.param.modifyValue(this, agent, agentParams.factor);
 
-			sickCount[agent.getType()]++;
+			changeSickCount(agent.getType(), 1);
 
-			setAgentState(agent, new DiseaseState(agentParams, true, false, simulation.getTime()));
+			DiseaseState state = new DiseaseState(agentParams, true, false, simulation.getTime());
+			setAgentState(agent, state);
+			scheduleRecovery(agent, state);
 		}
 
 	}
 
+	private void scheduleRecovery(final Agent agent, final DiseaseState state) {
+		int recoveryTime = params.agentParams[agent.getType()].recoveryTime;
+		if (recoveryTime == 0)
+			return;
+
+		// Agent recovers once it has been sick for longer than a random 100-120% of the recovery time
+		long randomRecovery = (long) (recoveryTime * (simulation.getRandom().nextDouble() * 0.2 + 1.0));
+		state.recovery = simulation.getScheduler().schedule(state.sickStart + randomRecovery + 1, agent, new Runnable() {
+			@Override
+			public void run() {
+				if (getAgentState(agent) == state)
+					unSick(agent);
+			}
+		});
+	}
+
+	/**
+	 * Loaded agents that are sick recover from when they got sick, as if they had been sick here.
+	 */
+	@Override
+	public void loadAgentState(Agent agent, DiseaseState state) {
+		DiseaseState previous = removeAgentState(agent);
+		if (previous != null && previous.sick) {
+			previous.cancelRecovery();
+			changeSickCount(agent.getType(), -1);
+		}
+
+		super.loadAgentState(agent, state);
+
+		if (state.sick) {
+			changeSickCount(agent.getType(), 1);
+			scheduleRecovery(agent, state);
+		}
+	}
+
 	@Override
 	public void onContact(Agent bumper, Agent bumpee) {
 		transmitBumpOneWay(bumper, bumpee);
@@ -88,8 +125,10 @@ public class DiseaseMutator extends StatefulMutatorBase<DiseaseState> implements
 	@Override
 	public void onDeath(Agent agent) {
 		DiseaseState diseaseState = removeAgentState(agent);
-		if (diseaseState != null && diseaseState.sick)
-			sickCount[agent.getType()]--;
+		if (diseaseState != null && diseaseState.sick) {
+			diseaseState.cancelRecovery();
+			changeSickCount(agent.getType(), -1);
+		}
 	}
 
 	@Override
@@ -113,7 +152,7 @@ public class DiseaseMutator extends StatefulMutatorBase<DiseaseState> implements
 			makeRandomSick(agent, 0);
 	}
 
-	public void setParams(SimulationTimeSpace sim, DiseaseParams diseaseParams, int agentTypes) {
+	public void setParams(SimulationInternals sim, DiseaseParams diseaseParams, int agentTypes) {
 		this.simulation = sim;
 		this.params = diseaseParams;
 		sickCount = ArrayUtilities.resizeArray(sickCount, agentTypes);
@@ -149,8 +188,12 @@ public class DiseaseMutator extends StatefulMutatorBase<DiseaseState> implements
 	}
 
 	private void unSick(Agent agent) {
-		removeAgentState(agent);
-		sickCount[agent.getType()]--;
+		removeAgentState(agent).cancelRecovery();
+		changeSickCount(agent.getType(), -1);
+	}
+
+	private synchronized void changeSickCount(int agentType, int delta) {
+		sickCount[agentType] += delta;
 	}
 
 	public boolean isSick(Agent agent) {
@@ -166,23 +209,6 @@ public class DiseaseMutator extends StatefulMutatorBase<DiseaseState> implements
 		setAgentState(bumpee, new DiseaseState(agentParams, false, true, effectiveness));
 	}
 
-	@Override
-	public void onUpdate(Agent a) {
-		if (!hasAgentState(a))
-			return;
-
-		DiseaseState s = getAgentState(a);
-
-		if (params.agentParams[a.getType()].recoveryTime == 0)
-			return;
-
-		long randomRecovery = (long) (params.agentParams[a.getType()].recoveryTime * (simulation.getRandom().nextDouble() * 0.2 + 1.0));
-
-		if (s.sick && simulation.getTime() - s.sickStart > randomRecovery) {
-			unSick(a);
-		}
-	}
-
 	@Override
 	protected boolean validState(DiseaseState value) {
 		return value != null;
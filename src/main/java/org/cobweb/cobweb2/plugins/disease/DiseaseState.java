@@ -1,5 +1,6 @@
 package org.cobweb.cobweb2.plugins.disease;
 
+import org.cobweb.cobweb2.core.EventScheduler;
 import org.cobweb.cobweb2.plugins.AgentState;
 import org.cobweb.io.ConfXMLTag;
 
@@ -21,6 +22,11 @@ public class DiseaseState implements AgentState {
 	@ConfXMLTag("AgentParams")
 	public DiseaseAgentParams agentParams;
 
+	/**
+	 * Scheduled recovery of a sick agent, null if none.
+	 */
+	transient EventScheduler.Event recovery;
+
 	@Deprecated // for reflection use only!
 	public DiseaseState() {
 	}
@@ -39,6 +45,13 @@ public class DiseaseState implements AgentState {
 		this.vaccineEffectiveness = vaccineEffectiveness;
 	}
 
+	void cancelRecovery() {
+		if (recovery != null) {
+			recovery.cancel();
+			recovery = null;
+		}
+	}
+
 	@Override
 	public boolean isTransient() {
 		return false;
@@ -1,12 +1,10 @@
 package org.cobweb.cobweb2.plugins.food;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
+import java.util.Arrays;
 
-import org.cobweb.cobweb2.core.Direction;
 import org.cobweb.cobweb2.core.Location;
 import org.cobweb.cobweb2.core.SimulationTimeSpace;
+import org.cobweb.cobweb2.core.Topology;
 import org.cobweb.cobweb2.impl.ComplexEnvironment;
 import org.cobweb.cobweb2.plugins.EnvironmentMutator;
 import org.cobweb.cobweb2.plugins.abiotic.AbioticMutator;
@@ -53,29 +51,22 @@ public class FoodGrowth implements EnvironmentMutator {
 	private void depleteFood(ComplexFoodParams food, int type) {
 		// the algorithm for randomly selecting the food cells to delete
 		// is as follows:
-		// We iterate through all of the cells and the location of each
-		// one containing food type i is added to
-		// a random position in our vector. We then calculate exactly
-		// how many food items we need to destroy, say N,
-		// and we destroy the food at the positions occupying the last N
-		// spots in our vector
-		List<Location> locations = new ArrayList<Location>();
-		for (int x = 0; x < simulation.getTopology().width; ++x) {
-			for (int y = 0; y < simulation.getTopology().height; ++y) {
-				Location currentPos = new Location(x, y);
-				if (env.hasFood(currentPos) && env.getFoodType(currentPos) == type)
-					locations.add(currentPos);
-			}
-		}
-
-		Collections.shuffle(locations, simulation.getRandom());
+		// We take the cells containing food type i, in cell order, and
+		// calculate exactly how many food items we need to destroy, say N.
+		// We then pick N of them at random with a partial Fisher-Yates
+		// shuffle and destroy the food there
+		int[] cells = env.getFoodCells(type);
+		Topology topology = simulation.getTopology();
 
-		int foodToDeplete = (int) (locations.size() * food.depleteRate);
+		int foodToDeplete = (int) (cells.length * food.depleteRate);
 
 		for (int j = 0; j < foodToDeplete; ++j) {
-			Location loc = locations.get(j);
+			int pick = j + simulation.getRandom().nextInt(cells.length - j);
+			int cell = cells[pick];
+			cells[pick] = cells[j];
+			cells[j] = cell;
 
-			env.removeFood(loc);
+			env.removeFood(new Location(topology.getCellX(cell), topology.getCellY(cell)));
 		}
 		draughtdays[type] = food.draughtPeriod;
 	}
@@ -99,73 +90,82 @@ public class FoodGrowth implements EnvironmentMutator {
 	}
 
 	private void growFood() {
-		// create a new ArrayEnvironment and a new food type array
-		// loop through all positions
+		// Food only grows next to existing food, so only cells on the food
+		// frontier are checked. They are visited in the same order as a
+		// row by row scan of the whole grid, and food grown along the way
+		// adds cells further down the frontier, just like the scan would see it.
 
 		AbioticMutator abiotic = env.getPlugin(AbioticMutator.class);
+		Topology topology = simulation.getTopology();
+
+		if (mostFood.length != getTypeCount())
+			mostFood = new int[getTypeCount()];
+
+		for (int cell = env.nextFoodFrontierCell(0); cell >= 0; cell = env.nextFoodFrontierCell(cell + 1)) {
+			if (env.hasStone(cell) || env.hasDrop(cell) || env.getAgent(cell) != null)
+				continue;
+
+			// we should grow food here
+			// the following code block tests all adjacent squares
+			// to this one and counts how many have food
+			// as well how many of each food type exist
 
-		for (int y = 0; y < simulation.getTopology().height; ++y) {
-			for (int x = 0; x < simulation.getTopology().width; ++x) {
-				Location currentPos = new Location(x, y);
-
-				if (!env.hasAnythingAt(currentPos)) {
-					// we should grow food here
-					// the following code block tests all adjacent squares
-					// to this one and counts how many have food
-					// as well how many of each food type exist
-
-					double foodCount = 0;
-					int[] mostFood = new int[getTypeCount()];
-
-					for (Direction dir : simulation.getTopology().ALL_4_WAY) {
-						Location checkPos = simulation.getTopology().getAdjacent(currentPos, dir);
-						if (checkPos != null && env.hasFood(checkPos)) {
-							foodCount++;
-							mostFood[env.getFoodType(checkPos)]++;
-						}
-					}
-
-					// and if we have found any adjacent food, theres a
-					// chance we want to grow food here
-					if (foodCount > 0) {
-
-						int max = 0;
-						int growingType;
-
-						// find the food that exists in the largest quantity
-						for (int i = 1; i < mostFood.length; ++i)
-							if (mostFood[i] > mostFood[max])
-								max = i;
-
-						// give the max food an extra chance to be chosen
-
-						if (sameFoodProb >= simulation.getRandom().nextFloat()) {
-							growingType = max;
-						} else {
-							growingType = simulation.getRandom().nextInt(getTypeCount());
-						}
-
-						// finally, we grow food according to a certain
-						// amount of random chance
-						ComplexFoodParams thisType = foodData[growingType];
-						float growRate = thisType.growRate;
-
-						for (int i = 0; i < thisType.abioticParams.factorParams.length; i++) {
-							AbioticPreferenceParam factorParams = thisType.abioticParams.factorParams[i].preference;
-							float factorValue = abiotic.getValue(i, currentPos);
-							float discomfort = 1 + factorParams.score(factorValue);
-							growRate *= discomfort;
-						}
-
-						if (foodCount * growRate > 100 * simulation.getRandom().nextFloat()) {
-							env.addFood(currentPos, growingType);
-						}
-					}
+			double foodCount = 0;
+			Arrays.fill(mostFood, 0);
+
+			for (int dir = 0; dir < 4; dir++) {
+				int checkCell = topology.getAdjacentCell(cell, dir);
+				if (checkCell >= 0 && env.hasFood(checkCell)) {
+					foodCount++;
+					mostFood[env.getFoodType(checkCell)]++;
+				}
+			}
+
+			// and if we have found any adjacent food, theres a
+			// chance we want to grow food here
+			if (foodCount > 0) {
+
+				int max = 0;
+				int growingType;
+
+				// find the food that exists in the largest quantity
+				for (int i = 1; i < mostFood.length; ++i)
+					if (mostFood[i] > mostFood[max])
+						max = i;
+
+				// give the max food an extra chance to be chosen
+
+				if (sameFoodProb >= simulation.getRandom().nextFloat()) {
+					growingType = max;
+				} else {
+					growingType = simulation.getRandom().nextInt(getTypeCount());
+				}
+
+				// finally, we grow food according to a certain
+				// amount of random chance
+				ComplexFoodParams thisType = foodData[growingType];
+				float growRate = thisType.growRate;
+				Location currentPos = new Location(topology.getCellX(cell), topology.getCellY(cell));
+
+				for (int i = 0; i < thisType.abioticParams.factorParams.length; i++) {
+					AbioticPreferenceParam factorParams = thisType.abioticParams.factorParams[i].preference;
+					float factorValue = abiotic.getValue(i, cell);
+					float discomfort = 1 + factorParams.score(factorValue);
+					growRate *= discomfort;
+				}
+
+				if (foodCount * growRate > 100 * simulation.getRandom().nextFloat()) {
+					env.addFood(currentPos, growingType);
 				}
 			}
 		}
 	}
 
+	/**
+	 * Food counts by type around the cell being checked, reused by growFood()
+	 */
+	private int[] mostFood = new int[0];
+
 	/**
 	 * Initializes drought days for each food type to zero.  Also checks to see if
 	 * food deplete rates and times are valid for each food type.  Valid random food
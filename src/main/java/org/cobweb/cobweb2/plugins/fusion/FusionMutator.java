@@ -8,6 +8,8 @@ import org.cobweb.cobweb2.plugins.StatefulMutatorBase;
 
 public class FusionMutator extends StatefulMutatorBase<FusionState> implements ContactMutator {
 
+    private static final ComplexAgent.BumpAgentCause BUMP_AGENT_CAUSE = new ComplexAgent.BumpAgentCause();
+
     public FusionParams params;
     private SimulationTimeSpace sim;
 
@@ -38,11 +40,11 @@ public class FusionMutator extends StatefulMutatorBase<FusionState> implements C
                 params.agentParams[te].probability > sim.getRandom().nextFloat()) {
             if (sim.getRandom().nextFloat() < 0.5) {
                 int energy = (int) (bumper.getEnergy() * params.agentParams[te].efficiency);
-                bumpee.changeEnergy(energy, new ComplexAgent.BumpAgentCause());
+                bumpee.changeEnergy(energy, BUMP_AGENT_CAUSE);
                 bumper.die();
             } else {
                 int energy = (int) (bumpee.getEnergy() * params.agentParams[tr].efficiency);
-                bumper.changeEnergy(energy, new ComplexAgent.BumpAgentCause());
+                bumper.changeEnergy(energy, BUMP_AGENT_CAUSE);
                 bumpee.die();
             }
         }
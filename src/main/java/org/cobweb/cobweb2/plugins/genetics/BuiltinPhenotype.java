@@ -31,5 +31,10 @@ public class BuiltinPhenotype extends PropertyPhenotype {
 		return ((ComplexAgent) a).params;
 	}
 
+	@Override
+	protected Object ownRootAccessor(Agent a) {
+		return ((ComplexAgent) a).getOwnParams();
+	}
+
 	private static final long serialVersionUID = 2L;
-}
+}
@@ -1,9 +1,13 @@
 package org.cobweb.cobweb2.plugins.genetics;
 
+import java.util.Arrays;
+
+import org.cobweb.cobweb2.core.SimulationInternals;
+import org.cobweb.cobweb2.core.SlottedStats;
 import org.cobweb.util.ArrayUtilities;
 
 
-public class GATracker {
+public class GATracker implements SlottedStats {
 
 
 
@@ -37,6 +41,13 @@ public class GATracker {
 
 	private int geneCount;
 
+	private SimulationInternals updateSlots;
+
+	/**
+	 * Agents added and removed during tile updates, by update slot
+	 */
+	private SlotChanges[] slotChanges = new SlotChanges[0];
+
 	public void setParams(int agentTypes, int geneNo) {
 		typeCount = agentTypes;
 		geneCount = geneNo;
@@ -76,6 +87,23 @@ public class GATracker {
 
 	/** Adds an agent. */
 	public void addAgent(int type, GeneticCode genes) {
+		int slot = updateSlots == null ? -1 : updateSlots.getUpdateSlot();
+		if (slot < 0)
+			add(type, genes);
+		else
+			slotChanges[slot].record(type, genes, true);
+	}
+
+	/** Removes an agent. */
+	public void removeAgent(int type, GeneticCode genes) {
+		int slot = updateSlots == null ? -1 : updateSlots.getUpdateSlot();
+		if (slot < 0)
+			remove(type, genes);
+		else
+			slotChanges[slot].record(type, genes, false);
+	}
+
+	private void add(int type, GeneticCode genes) {
 		for (int i = 0; i < geneCount; i++) {
 			total_gene_status[type][i] += genes.getStatus(i);
 			gene_status_distribution[type][i][geneStatusHash(genes.getValue(i))]++;
@@ -84,8 +112,7 @@ public class GATracker {
 		total_agents[type]++;
 	}
 
-	/** Removes an agent. */
-	public void removeAgent(int type, GeneticCode genes) {
+	private void remove(int type, GeneticCode genes) {
 		// FIXME broken because agents spawned before mutator die and invoke mutator
 		for (int i = 0; i < Math.min(geneCount, genes.getNumGenes()); i++) {
 			total_gene_status[type][i] -= genes.getStatus(i);
@@ -95,6 +122,54 @@ public class GATracker {
 		total_agents[type]--;
 	}
 
+	@Override
+	public void setUpdateSlots(SimulationInternals sim, int slots) {
+		updateSlots = sim;
+		slotChanges = new SlotChanges[slots];
+		for (int i = 0; i < slots; i++)
+			slotChanges[i] = new SlotChanges();
+	}
+
+	@Override
+	public void mergeUpdateSlots() {
+		for (SlotChanges changes : slotChanges) {
+			for (int i = 0; i < changes.size; i++) {
+				if (changes.added[i])
+					add(changes.types[i], changes.genes[i]);
+				else
+					remove(changes.types[i], changes.genes[i]);
+			}
+			changes.clear();
+		}
+	}
+
+	/**
+	 * Agents added and removed in one update slot, in the order it happened
+	 */
+	private static class SlotChanges {
+		int size = 0;
+		int[] types = new int[16];
+		boolean[] added = new boolean[16];
+		GeneticCode[] genes = new GeneticCode[16];
+
+		void record(int type, GeneticCode code, boolean add) {
+			if (size == types.length) {
+				types = Arrays.copyOf(types, size * 2);
+				added = Arrays.copyOf(added, size * 2);
+				genes = Arrays.copyOf(genes, size * 2);
+			}
+			types[size] = type;
+			added[size] = add;
+			genes[size] = code;
+			size++;
+		}
+
+		void clear() {
+			Arrays.fill(genes, 0, size, null);
+			size = 0;
+		}
+	}
+
 	public double[][][] getGeneStatusDistribution() {
 		return gene_status_distribution;
 	}
@@ -28,7 +28,19 @@ import org.reflections.Reflections;
 
 public class PhenotypeIndex {
 
-	public static Set<Phenotype> getPossibleValues() {
+	private static Set<Phenotype> possibleValues;
+
+	/**
+	 * Phenotypes are looked up once and shared, with their accessors already compiled.
+	 * @return all phenotypes agents can have
+	 */
+	public static synchronized Set<Phenotype> getPossibleValues() {
+		if (possibleValues == null)
+			possibleValues = findPossibleValues();
+		return possibleValues;
+	}
+
+	private static Set<Phenotype> findPossibleValues() {
 		Set<Phenotype> bindables = new LinkedHashSet<Phenotype>();
 
 		// Null phenotype
@@ -62,6 +74,11 @@ public class PhenotypeIndex {
 			}
 		}
 
+		for (Phenotype phenotype : bindables) {
+			if (phenotype instanceof PropertyPhenotype)
+				((PropertyPhenotype) phenotype).compile();
+		}
+
 		return Collections.unmodifiableSet(bindables);
 	}
 
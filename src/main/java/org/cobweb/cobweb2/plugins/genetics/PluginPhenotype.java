@@ -1,5 +1,7 @@
 package org.cobweb.cobweb2.plugins.genetics;
 
+import java.lang.invoke.MethodHandle;
+
 import org.cobweb.cobweb2.core.Agent;
 import org.cobweb.cobweb2.impl.ComplexAgent;
 import org.cobweb.cobweb2.plugins.AgentState;
@@ -12,6 +14,8 @@ public class PluginPhenotype extends PropertyPhenotype {
 	private Class<? extends AgentState> type;
 	private PropertyAccessor stateParamAccessor;
 
+	private transient MethodHandle stateParamGetter;
+
 	public PluginPhenotype(Class<? extends AgentState> type,
 			PropertyAccessor stateParamAccessor,
 			PropertyAccessor propertyAccessor) {
@@ -43,7 +47,15 @@ public class PluginPhenotype extends PropertyPhenotype {
 		if (state == null)
 			return null;
 
-		return stateParamAccessor.get(state);
+		if (stateParamGetter == null)
+			compile();
+		return invokeGetter(stateParamGetter, state);
+	}
+
+	@Override
+	void compile() {
+		super.compile();
+		stateParamGetter = stateParamAccessor.getGetter();
 	}
 
 
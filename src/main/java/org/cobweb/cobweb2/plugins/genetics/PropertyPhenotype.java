@@ -1,5 +1,7 @@
 package org.cobweb.cobweb2.plugins.genetics;
 
+import java.lang.invoke.MethodHandle;
+
 import org.cobweb.cobweb2.core.Agent;
 import org.cobweb.cobweb2.core.Phenotype;
 import org.cobweb.cobweb2.ui.config.PropertyAccessor;
@@ -10,6 +12,11 @@ public abstract class PropertyPhenotype extends Phenotype {
 
 	private PropertyAccessor propertyAccessor;
 
+	/**
+	 * Compiled propertyAccessor, set up by compile()
+	 */
+	private transient MethodHandle fieldGetter;
+
 	public PropertyPhenotype(PropertyAccessor propertyAccessor) {
 		super();
 		if (propertyAccessor != null &&(
@@ -46,23 +53,70 @@ public abstract class PropertyPhenotype extends Phenotype {
 
 	@Override
 	public void modifyValue(Object cause, Agent a, float m) {
-		if (rootAccessor(a) == null)
+		MutatableField field = getField(a);
+		if (field == null)
 			return;
 
-		MutatableField field = (MutatableField) propertyAccessor.get(rootAccessor(a));
+		if (field.isShared()) {
+			// First modification, the agent gets its own copy of the field
+			field = field.copy();
+			propertyAccessor.set(ownRootAccessor(a), field);
+		}
 		field.setMultiplier(cause, m);
 	}
 
 	@Override
 	public void unmodifyValue(Object cause, Agent a) {
-		if (rootAccessor(a) == null)
+		MutatableField field = getField(a);
+		if (field == null || field.isShared())
 			return;
 
-		MutatableField field = (MutatableField) propertyAccessor.get(rootAccessor(a));
 		field.removeMultiplier(cause);
 	}
 
+	private MutatableField getField(Agent a) {
+		Object root = rootAccessor(a);
+		if (root == null)
+			return null;
+
+		if (fieldGetter == null)
+			compile();
+		return (MutatableField) invokeGetter(fieldGetter, root);
+	}
+
+	/**
+	 * Resolves the accessors of this phenotype into method handles, so modifying an agent
+	 * does not go through reflection.
+	 * PhenotypeIndex does this once for every phenotype it hands out.
+	 */
+	void compile() {
+		fieldGetter = propertyAccessor.getGetter();
+	}
+
+	/**
+	 * @param getter handle from PropertyAccessor.getGetter()
+	 * @param object object to read from
+	 * @return value read by the handle
+	 */
+	protected static Object invokeGetter(MethodHandle getter, Object object) {
+		try {
+			return (Object) getter.invokeExact(object);
+		} catch (RuntimeException | Error ex) {
+			throw ex;
+		} catch (Throwable ex) {
+			throw new RuntimeException(ex);
+		}
+	}
+
 	protected abstract Object rootAccessor(Agent a);
 
+	/**
+	 * Root object that belongs to the agent alone, where shared fields are replaced
+	 * with the agent's own copy.
+	 */
+	protected Object ownRootAccessor(Agent a) {
+		return rootAccessor(a);
+	}
+
 	private static final long serialVersionUID = 1L;
 }
@@ -1,17 +1,16 @@
 package org.cobweb.cobweb2.plugins.gravity;
 
-import javafx.util.Pair;
 import org.cobweb.cobweb2.Simulation;
 import org.cobweb.cobweb2.core.*;
 import org.cobweb.cobweb2.impl.ComplexAgent;
-import org.cobweb.cobweb2.impl.ComplexEnvironment;
 import org.cobweb.cobweb2.plugins.AgentState;
 import org.cobweb.cobweb2.plugins.EnvironmentMutator;
 import org.cobweb.cobweb2.plugins.MoveMutator;
+import org.cobweb.cobweb2.plugins.SelectiveMutator;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 
-public class GravityMutator implements MoveMutator, EnvironmentMutator {
+public class GravityMutator implements MoveMutator, EnvironmentMutator, SelectiveMutator {
 
     public GravityMutator() {
     }
@@ -19,115 +18,314 @@ public class GravityMutator implements MoveMutator, EnvironmentMutator {
     private GravityParams params;
     private SimulationTimeSpace sim;
 
-    private int[][] massArray; // Array holding the positions of all the point masses
+    private int[] massArray; // Point mass at each cell, indexed by y * width + x
+
+    /*
+     * Cells with a non-zero point mass, in the order the whole grid used to be summed over
+     * (column by column), so forces add up the same way.
+     */
+    private int[] pointCells = new int[0];
+    private int[] pointMasses = new int[0];
+    private int pointCount = 0;
+
+    private MassNode massTree;
+
+    private int[] sortCells;
+    private int[] sortMasses;
+
+    // Scratch space for grouping agents, reused every tick
+    private int[] parent;
+    private int[] agentMass;
+    private int[] total;
+    private int[] weight;
+    private long[] sumX;
+    private long[] sumY;
+    private int[] head;
+    private int[] next;
+    private boolean[] placed;
 
     public void setParams(SimulationTimeSpace sim, GravityParams params) {
         this.sim = sim;
         this.params = params;
 
-        int w = sim.getTopology().width;
-        int h = sim.getTopology().height;
+        pointCount = 0;
+        massTree = null;
 
-        massArray = new int[w][h];
+        // Grid sized arrays are made on first use, so they are never made while gravity is off
+        massArray = null;
+    }
 
+    private void allocateGrid(int cells) {
+        massArray = new int[cells];
+        parent = new int[cells];
+        agentMass = new int[cells];
+        total = new int[cells];
+        weight = new int[cells];
+        sumX = new long[cells];
+        sumY = new long[cells];
+        head = new int[cells];
+        next = new int[cells];
+        placed = new boolean[cells];
     }
 
-    private int calculateContiguousArea(int a, int b, boolean[][] checked, ComplexEnvironment env, ArrayList<Location> result) {
-        Location thisLoc = new Location(a, b);
-        if (!checked[a][b] && env.hasAgent(thisLoc)) {
-            int total = params.gravityParams[env.getAgent(thisLoc).getType()].mass.getValue();
-            checked[a][b] = true;
-            for (int i = 0; i < total; i++) {
-                result.add(thisLoc);
+    /*
+     * Finds the contiguous groups of agents with union-find, then places the mass of each group
+     * at its centre of mass, visiting groups in the same order as the old recursive flood fill.
+     */
+    private void calculateMasses() {
+        Environment env = ((Simulation) sim).theEnvironment;
+        Topology topology = sim.getTopology();
+        int w = topology.width;
+        int h = topology.height;
+        int cells = w * h;
+        if (massArray == null)
+            allocateGrid(cells);
+
+        for (int cell = 0; cell < cells; cell++) {
+            Agent agent = env.getAgent(cell);
+            if (agent == null) {
+                parent[cell] = -1;
+                agentMass[cell] = 0;
+            } else {
+                parent[cell] = cell;
+                agentMass[cell] = params.gravityParams[agent.getType()].mass.getValue();
             }
+        }
 
-            Location northLoc = env.topology.getAdjacent(thisLoc, Topology.NORTH);
-            Location eastLoc = env.topology.getAdjacent(thisLoc, Topology.EAST);
-            Location southLoc = env.topology.getAdjacent(thisLoc, Topology.SOUTH);
-            Location westLoc = env.topology.getAdjacent(thisLoc, Topology.WEST);
+        int north = Topology.getDirectionIndex(Topology.NORTH);
+        int east = Topology.getDirectionIndex(Topology.EAST);
+        int south = Topology.getDirectionIndex(Topology.SOUTH);
+        int west = Topology.getDirectionIndex(Topology.WEST);
+        for (int cell = 0; cell < cells; cell++) {
+            if (parent[cell] < 0)
+                continue;
+            union(cell, topology.getAdjacentCell(cell, north));
+            union(cell, topology.getAdjacentCell(cell, east));
+            union(cell, topology.getAdjacentCell(cell, south));
+            union(cell, topology.getAdjacentCell(cell, west));
+        }
 
-            if (northLoc != null && !checked[northLoc.x][northLoc.y] && env.hasAgent(northLoc)) {
-                total += calculateContiguousArea(northLoc.x, northLoc.y, checked, env, result);
+        // Totals for each group, kept at the root; members are chained through next
+        Arrays.fill(sumX, 0);
+        Arrays.fill(sumY, 0);
+        Arrays.fill(total, 0);
+        Arrays.fill(weight, 0);
+        Arrays.fill(head, -1);
+        for (int cell = 0; cell < cells; cell++) {
+            if (parent[cell] < 0)
+                continue;
+            int root = find(cell);
+            int m = agentMass[cell];
+            total[root] += m;
+            // Only agents with positive mass count towards the centre
+            if (m > 0) {
+                weight[root] += m;
+                sumX[root] += (long) topology.getCellX(cell) * m;
+                sumY[root] += (long) topology.getCellY(cell) * m;
             }
-            if (eastLoc != null && !checked[eastLoc.x][eastLoc.y] && env.hasAgent(eastLoc)) {
-                total += calculateContiguousArea(eastLoc.x, eastLoc.y, checked, env, result);
-            }
-            if (southLoc != null && !checked[southLoc.x][southLoc.y] && env.hasAgent(southLoc)) {
-                total += calculateContiguousArea(southLoc.x, southLoc.y, checked, env, result);
+            next[cell] = head[root];
+            head[root] = cell;
+        }
+
+        Arrays.fill(placed, false);
+        for (int x = 0; x < w; x++) {
+            for (int y = 0; y < h; y++) {
+                int cell = y * w + x;
+                if (parent[cell] < 0) {
+                    massArray[cell] = 0;
+                    continue;
+                }
+                int root = find(cell);
+                if (placed[root])
+                    continue;
+                placed[root] = true;
+
+                if (total[root] == 0 || weight[root] == 0) {
+                    massArray[cell] = 0;
+                } else {
+                    for (int member = head[root]; member >= 0; member = next[member]) {
+                        if (agentMass[member] > 0)
+                            massArray[member] = 0;
+                    }
+                    int centerX = (int) (sumX[root] / weight[root]);
+                    int centerY = (int) (sumY[root] / weight[root]);
+                    massArray[centerY * w + centerX] = total[root];
+                }
             }
-            if (westLoc != null && !checked[westLoc.x][westLoc.y] && env.hasAgent(westLoc)) {
-                total += calculateContiguousArea(westLoc.x, westLoc.y, checked, env, result);
+        }
+
+        pointCount = 0;
+        for (int x = 0; x < w; x++) {
+            for (int y = 0; y < h; y++) {
+                int cell = y * w + x;
+                if (massArray[cell] == 0)
+                    continue;
+                if (pointCount == pointCells.length) {
+                    pointCells = Arrays.copyOf(pointCells, Math.max(16, pointCount * 2));
+                    pointMasses = Arrays.copyOf(pointMasses, pointCells.length);
+                }
+                pointCells[pointCount] = cell;
+                pointMasses[pointCount] = massArray[cell];
+                pointCount++;
             }
-            return total;
         }
-        return 0;
+
+        massTree = null;
+        if (params.approximation > 0 && pointCount > 0) {
+            sortCells = new int[pointCount];
+            sortMasses = new int[pointCount];
+            massTree = new MassNode(0, 0, Math.max(w, h), 0, pointCount);
+        }
     }
 
-    private Location centerOfMass(ArrayList<Location> locations) {
-        int centerX = 0;
-        int centerY = 0;
+    private void union(int a, int b) {
+        if (b < 0 || parent[b] < 0)
+            return;
+        int rootA = find(a);
+        int rootB = find(b);
+        if (rootA != rootB)
+            parent[Math.max(rootA, rootB)] = Math.min(rootA, rootB);
+    }
 
-        for (Location loc: locations) {
-            centerX += loc.x;
-            centerY += loc.y;
+    private int find(int cell) {
+        while (parent[cell] != cell) {
+            parent[cell] = parent[parent[cell]];
+            cell = parent[cell];
         }
-
-        return new Location((int) (centerX / locations.size()), (int) (centerY / locations.size()));
+        return cell;
     }
 
-    private void calculateMasses() {
-        ComplexEnvironment env = ((Simulation) sim).theEnvironment;
-
-        boolean[][] checked = new boolean[env.data.width][env.data.height];
-
-        for (int i = 0; i < env.data.width; i++) {
-            for (int j = 0; j < env.data.height; j++) {
-                if (!checked[i][j]) {
-                    ArrayList<Location> locations = new ArrayList<>(); // The locations where this mass occurs, weighted for each agent's mass
-                    // i.e. if an agent has mass 4, its location will appear 4 times in <locations>
-                    int mass = calculateContiguousArea(i, j, checked, env, locations);
-                    if (mass == 0) {
-                        massArray[i][j] = 0;
-                    } else {
-                        Location center = centerOfMass(locations);
-                        for (Location loc : locations) {
-                            massArray[loc.x][loc.y] = 0;
-                        }
-                        massArray[center.x][center.y] = mass;
-                    }
-                }
+    /*
+     * Returns {forceX, forceY}: + right, - left and + down, - up
+     */
+    private double[] calculateGravityProbability(Agent agent) {
+        double[] force = new double[2];
+
+        int agentCell = sim.getTopology().getCell(agent.getPosition());
+        int agentMass = params.gravityParams[agent.getType()].mass.getValue();
+        if (massTree == null) {
+            for (int i = 0; i < pointCount; i++) {
+                addForce(force, agentCell, agentMass, pointCells[i], pointMasses[i]);
             }
+        } else {
+            massTree.addForce(force, agentCell, agentMass);
         }
+
+        return force;
+    }
+
+    private void addForce(double[] result, int agentCell, int agentMass, int pointCell, int pointMass) {
+        if (pointCell == agentCell)
+            return;
+
+        Topology topology = sim.getTopology();
+        double dis = topology.getDistanceSquared(agentCell, pointCell);
+        double force = (params.gravitationalConstant * pointMass * agentMass) / dis;
+        Direction toPoint = topology.getDirectionBetween8way(agentCell, pointCell);
+        result[0] += (toPoint.x / Math.sqrt(toPoint.x * toPoint.x + toPoint.y * toPoint.y)) * force;
+        result[1] += (toPoint.y / Math.sqrt(toPoint.x * toPoint.x + toPoint.y * toPoint.y)) * force;
     }
 
-    private Pair<Double, Double> calculateGravityProbability(Agent agent) {
-        double forceX = 0; // + right, - left
-        double forceY = 0; // + down, - up
-
-        Location agentLoc = agent.getPosition();
-        for (int a = 0; a < sim.getTopology().width; a++) {
-            for (int b = 0; b < sim.getTopology().height; b++) {
-                Location ab = new Location(a, b);
-                double dis = sim.getTopology().getDistanceSquared(agentLoc, ab);
-                if (!agentLoc.equals(ab)) {
-                    double force = (params.gravitationalConstant * massArray[a][b] * params.gravityParams[agent.getType()].mass.getValue()) / dis;
-                    Direction toPoint = sim.getTopology().getDirectionBetween8way(agentLoc, ab);
-                    forceX += (toPoint.x / Math.sqrt(toPoint.x * toPoint.x + toPoint.y * toPoint.y)) * force;
-                    forceY += (toPoint.y / Math.sqrt(toPoint.x * toPoint.x + toPoint.y * toPoint.y)) * force;
+    /*
+     * Barnes-Hut quadtree over the point masses. A square far enough from the agent, compared to
+     * its size, pulls as a single mass at its centre of mass.
+     */
+    private class MassNode {
+        private final int size;
+        private final int from;
+        private final int to;
+        private final int mass;
+        private final int centerCell;
+        private final MassNode[] children;
+
+        /*
+         * Sorts points [from, to) of the point list into the four quarters of the square and
+         * builds a node for each quarter that has any.
+         */
+        MassNode(int x0, int y0, int size, int from, int to) {
+            this.size = size;
+            this.from = from;
+            this.to = to;
+
+            Topology topology = sim.getTopology();
+            long totalMass = 0;
+            long sumX = 0;
+            long sumY = 0;
+            for (int i = from; i < to; i++) {
+                totalMass += pointMasses[i];
+                sumX += (long) topology.getCellX(pointCells[i]) * pointMasses[i];
+                sumY += (long) topology.getCellY(pointCells[i]) * pointMasses[i];
+            }
+            mass = (int) totalMass;
+            int cx = totalMass == 0 ? x0 + size / 2 : (int) Math.round((double) sumX / totalMass);
+            int cy = totalMass == 0 ? y0 + size / 2 : (int) Math.round((double) sumY / totalMass);
+            cx = Math.min(topology.width - 1, Math.max(0, cx));
+            cy = Math.min(topology.height - 1, Math.max(0, cy));
+            centerCell = cy * topology.width + cx;
+
+            if (to - from <= 1 || size <= 1) {
+                children = null;
+                return;
+            }
+
+            // Group the points by quarter, keeping their order within each quarter
+            int half = (size + 1) / 2;
+            int[] quarterEnd = new int[4];
+            int n = from;
+            for (int q = 0; q < 4; q++) {
+                int qx = x0 + (q % 2) * half;
+                int qy = y0 + (q / 2) * half;
+                for (int i = from; i < to; i++) {
+                    int x = topology.getCellX(pointCells[i]);
+                    int y = topology.getCellY(pointCells[i]);
+                    if (x >= qx && x < qx + half && y >= qy && y < qy + half) {
+                        sortCells[n] = pointCells[i];
+                        sortMasses[n] = pointMasses[i];
+                        n++;
+                    }
                 }
+                quarterEnd[q] = n;
+            }
+            System.arraycopy(sortCells, from, pointCells, from, to - from);
+            System.arraycopy(sortMasses, from, pointMasses, from, to - from);
+
+            children = new MassNode[4];
+            int start = from;
+            for (int q = 0; q < 4; q++) {
+                if (quarterEnd[q] > start)
+                    children[q] = new MassNode(x0 + (q % 2) * half, y0 + (q / 2) * half, half, start, quarterEnd[q]);
+                start = quarterEnd[q];
             }
         }
 
-        return new Pair<>(forceX, forceY);
+        void addForce(double[] result, int agentCell, int agentMass) {
+            if (children == null) {
+                for (int i = from; i < to; i++)
+                    GravityMutator.this.addForce(result, agentCell, agentMass, pointCells[i], pointMasses[i]);
+                return;
+            }
+
+            double theta = params.approximation;
+            double dis = sim.getTopology().getDistanceSquared(agentCell, centerCell);
+            if (centerCell != agentCell && size * size < theta * theta * dis) {
+                GravityMutator.this.addForce(result, agentCell, agentMass, centerCell, mass);
+                return;
+            }
+
+            for (MassNode child : children) {
+                if (child != null)
+                    child.addForce(result, agentCell, agentMass);
+            }
+        }
     }
 
     @Override
     public boolean overrideMove(Agent agent) {
 
         if (params.gravityEnabled) {
-            Pair<Double, Double> res = calculateGravityProbability(agent);
-            double forceX = res.getKey();
-            double forceY = res.getValue();
+            double[] res = calculateGravityProbability(agent);
+            double forceX = res[0];
+            double forceY = res[1];
 
             if (forceX == 0 && forceY == 0) {
                 return false;
@@ -178,12 +376,19 @@ public class GravityMutator implements MoveMutator, EnvironmentMutator {
 
     @Override
     public void loadNew() {
-        calculateMasses(); // Create the initial array of point masses
+        if (params.gravityEnabled)
+            calculateMasses(); // Create the initial array of point masses
     }
 
     @Override
     public void update() {
-        calculateMasses();
+        if (params.gravityEnabled)
+            calculateMasses();
+    }
+
+    @Override
+    public boolean isActive(Class<?> hook, int agentType) {
+        return params.gravityEnabled;
     }
 
     @Override
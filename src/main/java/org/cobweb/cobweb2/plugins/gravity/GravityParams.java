@@ -24,6 +24,14 @@ public class GravityParams implements PerTypeParam<GravityTypeParams> {
     @ConfXMLTag("gravityStrength")
     public float gravitationalConstant = 0.667f;
 
+    /*
+     * Barnes-Hut accuracy: groups of masses further away than their size divided by this are
+     * treated as one mass. 0 sums every mass exactly, larger values are faster and less accurate.
+     */
+    @ConfDisplayName("Approximation (0 = exact)")
+    @ConfXMLTag("approximation")
+    public float approximation = 0;
+
     @ConfXMLTag("GravityParams")
     @ConfList(indexName = "Gravity", startAtOne = true)
     public GravityTypeParams[] gravityParams = new GravityTypeParams[0];
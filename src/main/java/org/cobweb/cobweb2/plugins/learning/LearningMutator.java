@@ -6,12 +6,14 @@ import org.cobweb.cobweb2.core.ControllerInput;
 import org.cobweb.cobweb2.core.RandomSource;
 import org.cobweb.cobweb2.plugins.ControllerInputMutator;
 import org.cobweb.cobweb2.plugins.EnergyMutator;
+import org.cobweb.cobweb2.plugins.SelectiveMutator;
+import org.cobweb.cobweb2.plugins.SpawnMutator;
 import org.cobweb.cobweb2.plugins.StatefulSpawnMutatorBase;
 import org.cobweb.cobweb2.plugins.UpdateMutator;
 
 
 public class LearningMutator extends StatefulSpawnMutatorBase<LearningState>
-implements EnergyMutator, ControllerInputMutator, UpdateMutator {
+implements EnergyMutator, ControllerInputMutator, UpdateMutator, SelectiveMutator {
 
 	private LearningParams params;
 
@@ -23,6 +25,22 @@ implements EnergyMutator, ControllerInputMutator, UpdateMutator {
 		this.params = params;
 	}
 
+	/**
+	 * Children keep the learning parameters of their parent, whatever their own type is,
+	 * so learning is on for every type as soon as one type learns.
+	 */
+	@Override
+	public boolean isActive(Class<?> hook, int agentType) {
+		if (hook == SpawnMutator.class)
+			return true;
+
+		for (LearningAgentParams typeParams : params.agentParams) {
+			if (typeParams.learningEnabled)
+				return true;
+		}
+		return false;
+	}
+
 	@Override
 	protected LearningState stateForNewAgent(Agent agent) {
 		LearningAgentParams typeParams = params.agentParams[agent.getType()];
@@ -12,6 +12,12 @@ import org.cobweb.cobweb2.plugins.broadcast.PacketConduit.BroadcastCause;
 
 public class PDMutator extends StatefulSpawnMutatorBase<PDState> implements ContactMutator {
 
+	private static final PDRewardCause PD_REWARD_CAUSE = new PDRewardCause();
+	private static final PDSuckerCause PD_SUCKER_CAUSE = new PDSuckerCause();
+	private static final PDTemptationCause PD_TEMPTATION_CAUSE = new PDTemptationCause();
+	private static final PDPunishmentCause PD_PUNISHMENT_CAUSE = new PDPunishmentCause();
+	private static final BroadcastCheaterCause BROADCAST_CHEATER_CAUSE = new BroadcastCheaterCause();
+
 	SimulationInternals sim;
 	PDParams params;
 
@@ -154,23 +160,23 @@ public class PDMutator extends StatefulSpawnMutatorBase<PDState> implements Cont
 
 		if (!meState.pdCheater && !otherState.pdCheater) {
 			/* Both cooperate */
-			me.changeEnergy(+params.reward, new PDRewardCause());
-			adjacentAgent.changeEnergy(+params.reward, new PDRewardCause());
+			me.changeEnergy(+params.reward, PD_REWARD_CAUSE);
+			adjacentAgent.changeEnergy(+params.reward, PD_REWARD_CAUSE);
 
 		} else if (!meState.pdCheater && otherState.pdCheater) {
 			/* Only other agent cheats */
-			me.changeEnergy(+params.sucker, new PDSuckerCause());
-			adjacentAgent.changeEnergy(+params.temptation, new PDTemptationCause());
+			me.changeEnergy(+params.sucker, PD_SUCKER_CAUSE);
+			adjacentAgent.changeEnergy(+params.temptation, PD_TEMPTATION_CAUSE);
 
 		} else if (meState.pdCheater && !otherState.pdCheater) {
 			/* Only this agent cheats */
-			me.changeEnergy(+params.temptation, new PDTemptationCause());
-			adjacentAgent.changeEnergy(+params.sucker, new PDSuckerCause());
+			me.changeEnergy(+params.temptation, PD_TEMPTATION_CAUSE);
+			adjacentAgent.changeEnergy(+params.sucker, PD_SUCKER_CAUSE);
 
 		} else if (meState.pdCheater && otherState.pdCheater) {
 			/* Both cheat */
-			me.changeEnergy(+params.punishment, new PDPunishmentCause());
-			adjacentAgent.changeEnergy(+params.punishment, new PDPunishmentCause());
+			me.changeEnergy(+params.punishment, PD_PUNISHMENT_CAUSE);
+			adjacentAgent.changeEnergy(+params.punishment, PD_PUNISHMENT_CAUSE);
 		}
 
 		if (otherState.pdCheater)
@@ -184,7 +190,7 @@ public class PDMutator extends StatefulSpawnMutatorBase<PDState> implements Cont
 	 */
 	private static void iveBeenCheated(ComplexAgent me, Agent cheater) {
 		me.rememberBadAgent(cheater);
-		me.broadcast(new CheaterBroadcast(cheater, me), new BroadcastCheaterCause());
+		me.broadcast(new CheaterBroadcast(cheater, me), BROADCAST_CHEATER_CAUSE);
 	}
 
 	public static class PDCause implements Cause {
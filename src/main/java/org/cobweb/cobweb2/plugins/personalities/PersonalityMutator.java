@@ -5,6 +5,7 @@ import org.cobweb.cobweb2.core.*;
 import org.cobweb.cobweb2.impl.ComplexAgent;
 import org.cobweb.cobweb2.plugins.ContactMutator;
 import org.cobweb.cobweb2.plugins.MoveMutator;
+import org.cobweb.cobweb2.plugins.SelectiveMutator;
 import org.cobweb.cobweb2.plugins.StatefulSpawnMutatorBase;
 import org.cobweb.cobweb2.plugins.broadcast.CheaterBroadcast;
 import org.cobweb.cobweb2.plugins.pd.PDMutator;
@@ -18,7 +19,14 @@ import org.cobweb.cobweb2.plugins.pd.PDMutator.PDTemptationCause;
  * The swarm-esque part will be just an override of the controller's choice of input. But a method here
  * will be used to determine the location of the closest few agents and move in that direction.
  */
-public class PersonalityMutator extends StatefulSpawnMutatorBase<PersonalityState> implements ContactMutator, MoveMutator {
+public class PersonalityMutator extends StatefulSpawnMutatorBase<PersonalityState> implements ContactMutator, MoveMutator,
+        SelectiveMutator {
+
+    private static final PDRewardCause PD_REWARD_CAUSE = new PDRewardCause();
+    private static final PDSuckerCause PD_SUCKER_CAUSE = new PDSuckerCause();
+    private static final PDTemptationCause PD_TEMPTATION_CAUSE = new PDTemptationCause();
+    private static final PDPunishmentCause PD_PUNISHMENT_CAUSE = new PDPunishmentCause();
+    private static final PDMutator.BroadcastCheaterCause BROADCAST_CHEATER_CAUSE = new PDMutator.BroadcastCheaterCause();
 
     SimulationInternals sim;
     PersonalityParams params;
@@ -52,6 +60,9 @@ public class PersonalityMutator extends StatefulSpawnMutatorBase<PersonalityStat
 
         // Now find the closest agent
         Agent closest = simulation.theEnvironment.getClosestAgent(agent);
+        if (closest == null) {
+            return false;
+        }
         LocationDirection l2 = closest.getPosition();
         LocationDirection l1 = agent.getPosition();
         if (simulation.getTopology().getDistance(l1, l2) < 2) {
@@ -110,6 +121,12 @@ public class PersonalityMutator extends StatefulSpawnMutatorBase<PersonalityStat
         this.params = params;
     }
 
+    @Override
+    public boolean isActive(Class<?> hook, int agentType) {
+        // Agents only get personalities while they are enabled
+        return params.personalitiesEnabled;
+    }
+
     @Override
     public PersonalityState stateForNewAgent(Agent agent) {
         if (!params.personalitiesEnabled) {
@@ -194,23 +211,23 @@ public class PersonalityMutator extends StatefulSpawnMutatorBase<PersonalityStat
 
         if (!meState.pdCheater && !otherState.pdCheater) {
             /* Both cooperate */
-            me.changeEnergy(+params.reward, new PDRewardCause());
-            adjacentAgent.changeEnergy(+params.reward, new PDRewardCause());
+            me.changeEnergy(+params.reward, PD_REWARD_CAUSE);
+            adjacentAgent.changeEnergy(+params.reward, PD_REWARD_CAUSE);
 
         } else if (!meState.pdCheater && otherState.pdCheater) {
             /* Only other agent cheats */
-            me.changeEnergy(+params.sucker, new PDSuckerCause());
-            adjacentAgent.changeEnergy(+params.temptation, new PDTemptationCause());
+            me.changeEnergy(+params.sucker, PD_SUCKER_CAUSE);
+            adjacentAgent.changeEnergy(+params.temptation, PD_TEMPTATION_CAUSE);
 
         } else if (meState.pdCheater && !otherState.pdCheater) {
             /* Only this agent cheats */
-            me.changeEnergy(+params.temptation, new PDTemptationCause());
-            adjacentAgent.changeEnergy(+params.sucker, new PDSuckerCause());
+            me.changeEnergy(+params.temptation, PD_TEMPTATION_CAUSE);
+            adjacentAgent.changeEnergy(+params.sucker, PD_SUCKER_CAUSE);
 
         } else if (meState.pdCheater && otherState.pdCheater) {
             /* Both cheat */
-            me.changeEnergy(+params.punishment, new PDPunishmentCause());
-            adjacentAgent.changeEnergy(+params.punishment, new PDPunishmentCause());
+            me.changeEnergy(+params.punishment, PD_PUNISHMENT_CAUSE);
+            adjacentAgent.changeEnergy(+params.punishment, PD_PUNISHMENT_CAUSE);
         }
 
         if (otherState.pdCheater)
@@ -219,7 +236,7 @@ public class PersonalityMutator extends StatefulSpawnMutatorBase<PersonalityStat
 
     private static void iveBeenCheated(ComplexAgent me, Agent cheater) {
         me.rememberBadAgent(cheater);
-        me.broadcast(new CheaterBroadcast(cheater, me), new PDMutator.BroadcastCheaterCause());
+        me.broadcast(new CheaterBroadcast(cheater, me), BROADCAST_CHEATER_CAUSE);
     }
 
     @Override
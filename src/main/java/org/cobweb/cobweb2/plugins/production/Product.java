@@ -1,12 +1,15 @@
 package org.cobweb.cobweb2.plugins.production;
 
 import org.cobweb.cobweb2.core.Agent;
-import org.cobweb.cobweb2.core.Drop;
+import org.cobweb.cobweb2.core.ExpiringDrop;
 import org.cobweb.cobweb2.core.Location;
 import org.cobweb.cobweb2.plugins.TemporaryEffect;
 import org.cobweb.cobweb2.plugins.production.ProductionMapper.ProductionCause;
 
-public class Product implements Drop {
+public class Product implements ExpiringDrop {
+
+	private static final ProductSoldCause PRODUCT_SOLD_CAUSE = new ProductSoldCause();
+	private static final ProductBoughtCause PRODUCT_BOUGHT_CAUSE = new ProductBoughtCause();
 	private final ProductionMapper productionMapper;
 	final Location loc;
 	private long expiryTime;
@@ -30,10 +33,19 @@ public class Product implements Drop {
 			productionMapper.remove(this);
 	}
 
+	@Override
+	public long getExpiryTime() {
+		return expiryTime;
+	}
+
 	public float getValue() {
 		return value;
 	}
 
+	boolean isFrom(ProductionMapper mapper) {
+		return productionMapper == mapper;
+	}
+
 	@Override
 	public boolean canStep(Agent agent) {
 		return true;
@@ -59,8 +71,8 @@ public class Product implements Drop {
 			if (!buyer.enoughEnergy(price))
 				return;
 
-			producer.changeEnergy(+price, new ProductSoldCause());
-			buyer.changeEnergy(-price, new ProductBoughtCause());
+			producer.changeEnergy(+price, PRODUCT_SOLD_CAUSE);
+			buyer.changeEnergy(-price, PRODUCT_BOUGHT_CAUSE);
 
 			TemporaryEffect effect = new TemporaryEffect(
 					buyer,
@@ -0,0 +1,174 @@
+package org.cobweb.cobweb2.plugins.production;
+
+import org.cobweb.cobweb2.core.DistanceVisitor;
+import org.cobweb.cobweb2.core.Drop;
+import org.cobweb.cobweb2.core.Environment;
+import org.cobweb.cobweb2.core.Topology;
+
+/**
+ * Productivity value of each cell: the sum over all products of the product's value divided by its
+ * squared distance from the cell, counting distances under 1 as 1.
+ *
+ * <p>With a radius, each product only adds to the cells within that distance, and adding or
+ * removing one only touches those cells. Without one, every product reaches every cell of the map.
+ *
+ * <p>In lazy mode no values are stored; the value of a cell is added up from the products around it
+ * when asked for.
+ */
+class ProductionField {
+
+	private final Environment environment;
+
+	private final Topology topology;
+
+	/**
+	 * Reach of a product, 0 for the whole map
+	 */
+	private final float radius;
+
+	private final boolean lazy;
+
+	private final float[][] vals;
+
+	/**
+	 * Largest value, at least 1; out of date when stale is set.
+	 */
+	private float maxValue = 1;
+
+	private boolean stale = false;
+
+	ProductionField(Environment environment, float radius, boolean lazy) {
+		this.environment = environment;
+		this.topology = environment.topology;
+		this.radius = Math.max(0, radius);
+		this.lazy = lazy && this.radius > 0;
+		this.vals = this.lazy ? null : new float[topology.width][topology.height];
+	}
+
+	void add(Product p) {
+		if (!lazy)
+			update(p, true);
+	}
+
+	void remove(Product p) {
+		if (!lazy)
+			update(p, false);
+	}
+
+	private void update(Product p, boolean addition) {
+		FieldUpdate visitor = new FieldUpdate(p.getValue(), addition);
+		int centre = topology.getCell(p.getLocation());
+		if (radius > 0) {
+			topology.forEachInArea(centre, radius, visitor);
+		} else {
+			for (int cell = 0; cell < topology.width * topology.height; cell++)
+				visitor.visit(cell, topology.getDistanceSquared(centre, cell));
+		}
+
+		if (visitor.max > maxValue)
+			maxValue = visitor.max;
+		if (visitor.loweredMax)
+			stale = true;
+	}
+
+	private class FieldUpdate implements DistanceVisitor {
+		private final float value;
+		private final boolean addition;
+		float max = 0;
+		boolean loweredMax = false;
+
+		FieldUpdate(float value, boolean addition) {
+			this.value = value;
+			this.addition = addition;
+		}
+
+		@Override
+		public void visit(int cell, int distanceSquared) {
+			int x = topology.getCellX(cell);
+			int y = topology.getCellY(cell);
+			float old = vals[x][y];
+			float v = value / Math.max(1, distanceSquared);
+			float updated = addition ? old + v : old - v;
+			if (updated < 0)
+				updated = 0;
+			vals[x][y] = updated;
+
+			if (updated > max)
+				max = updated;
+			if (updated < old && old >= maxValue)
+				loweredMax = true;
+		}
+	}
+
+	float getValue(int x, int y) {
+		if (!lazy)
+			return vals[x][y];
+
+		ProductSum sum = new ProductSum();
+		topology.forEachInArea(y * topology.width + x, radius, sum);
+		return sum.total;
+	}
+
+	private class ProductSum implements DistanceVisitor {
+		float total = 0;
+
+		@Override
+		public void visit(int cell, int distanceSquared) {
+			Drop drop = environment.getDrop(cell);
+			if (drop instanceof Product)
+				total += ((Product) drop).getValue() / Math.max(1, distanceSquared);
+		}
+	}
+
+	/**
+	 * @return value of every cell, by x then y
+	 */
+	float[][] getValues() {
+		if (!lazy)
+			return vals;
+
+		float[][] result = new float[topology.width][topology.height];
+		for (int x = 0; x < topology.width; x++) {
+			for (int y = 0; y < topology.height; y++)
+				result[x][y] = getValue(x, y);
+		}
+		return result;
+	}
+
+	/**
+	 * @return largest value of any cell, at least 1
+	 */
+	float getMax() {
+		if (lazy)
+			return findMax(getValues());
+
+		if (stale) {
+			maxValue = findMax(vals);
+			stale = false;
+		}
+		return maxValue;
+	}
+
+	/**
+	 * @param values values just returned by {@link #getValues()}
+	 * @return largest value of any cell, at least 1
+	 */
+	float getMax(float[][] values) {
+		if (lazy)
+			return findMax(values);
+		return getMax();
+	}
+
+	private static float findMax(float[][] values) {
+		// Accumulation errors could make this a very small number,
+		// and we only care about real values
+		float max = 1;
+		for (float[] column : values) {
+			for (float v : column) {
+				if (v > max)
+					max = v;
+			}
+		}
+		return max;
+	}
+}
@@ -1,68 +1,45 @@
 package org.cobweb.cobweb2.plugins.production;
 
 import java.util.Arrays;
-import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 
 import org.cobweb.cobweb2.core.Agent;
 import org.cobweb.cobweb2.core.Cause;
+import org.cobweb.cobweb2.core.Drop;
 import org.cobweb.cobweb2.core.Environment;
 import org.cobweb.cobweb2.core.Location;
 import org.cobweb.cobweb2.core.LocationDirection;
-import org.cobweb.cobweb2.core.SimulationTimeSpace;
+import org.cobweb.cobweb2.core.SimulationInternals;
 import org.cobweb.cobweb2.core.StateParameter;
 import org.cobweb.cobweb2.core.StatePlugin;
 import org.cobweb.cobweb2.impl.ComplexAgent;
 import org.cobweb.cobweb2.plugins.DropManager;
 import org.cobweb.cobweb2.plugins.EnvironmentMutator;
+import org.cobweb.cobweb2.plugins.SelectiveMutator;
 import org.cobweb.cobweb2.plugins.StatefulSpawnMutatorBase;
 import org.cobweb.cobweb2.plugins.TemporaryEffect;
 import org.cobweb.cobweb2.plugins.UpdateMutator;
-import org.cobweb.util.ArrayUtilities;
 
 public class ProductionMapper extends StatefulSpawnMutatorBase<ProductionState>
-implements StatePlugin, UpdateMutator, EnvironmentMutator, DropManager<Product> {
+implements StatePlugin, UpdateMutator, EnvironmentMutator, DropManager<Product>, SelectiveMutator {
+
+	private static final ProduceProductCause PRODUCE_PRODUCT_CAUSE = new ProduceProductCause();
 
 	private Environment environment;
-	private float[][] vals;
-	private float maxValue;
-	SimulationTimeSpace simulation;
+	private ProductionField field;
+	SimulationInternals simulation;
 	private ProductionAgentParams[] initialParams;
 
-	public ProductionMapper(SimulationTimeSpace sim) {
+	public ProductionMapper(SimulationInternals sim) {
 		super(ProductionState.class, sim);
 		simulation = sim;
 	}
 
 	public void updateValues(Product p, boolean addition) {
-		float newMax = 0;
-		for (int x = 0; x < vals.length; x++) {
-			for (int y = 0; y < vals[x].length; y++) {
-				float value = getDifAtLoc(p, new Location(x, y));
-				vals[x][y] += addition ? value : - value;
-
-				if (vals[x][y] < 0) {
-					vals[x][y] = 0;
-				}
-				if (vals[x][y] > newMax) {
-					newMax = vals[x][y];
-				}
-			}
-		}
-
-		// Accumulation errors could make this a very small number,
-		// and we only care about real values
-		if (newMax < 1)
-			newMax = 1;
-
-		maxValue = newMax;
-	}
-
-	private float getDifAtLoc(Product source, Location loc2) {
-		float val = source.getValue();
-		val /= Math.max(1, simulation.getTopology().getDistanceSquared(source.getLocation(), loc2));
-		return val;
+		if (addition)
+			field.add(p);
+		else
+			field.remove(p);
 	}
 
 	/**
@@ -83,15 +60,23 @@ implements StatePlugin, UpdateMutator, EnvironmentMutator, DropManager<Product>
 	 *
 	 */
 	private float getValueAtLocation(Location loc) {
-		return vals[loc.x][loc.y];
+		return field.getValue(loc.x, loc.y);
 	}
 
 	public float[][] getValues() {
-		return vals;
+		return field.getValues();
 	}
 
 	public float getMax() {
-		return maxValue;
+		return field.getMax();
+	}
+
+	/**
+	 * Same as {@link #getMax()}, without adding up the values again when they are not stored.
+	 * @param values values just returned by {@link #getValues()}
+	 */
+	public float getMax(float[][] values) {
+		return field.getMax(values);
 	}
 
 	private class ProductHunt implements StateParameter {
@@ -131,7 +116,7 @@ implements StatePlugin, UpdateMutator, EnvironmentMutator, DropManager<Product>
 		ProductionState agentState = getAgentState(owner);
 		Product prod = new Product(value, owner, this, agentState.agentParams.productExpiry.getValue());
 
-		owner.changeEnergy(-agentState.agentParams.productionCost.getValue(), new ProduceProductCause());
+		owner.changeEnergy(-agentState.agentParams.productionCost.getValue(), PRODUCE_PRODUCT_CAUSE);
 
 		environment.addDrop(prod.loc, prod);
 	}
@@ -254,6 +239,12 @@ implements StatePlugin, UpdateMutator, EnvironmentMutator, DropManager<Product>
 	}
 
 
+	@Override
+	public boolean isActive(Class<?> hook, int agentType) {
+		// Agents of other types never get a production state, so have nothing to produce
+		return initialParams[agentType].productionMode;
+	}
+
 	@Override
 	public ProductionState stateForNewAgent(Agent agent) {
 		ProductionAgentParams params = initialParams[agent.getType()];
@@ -274,10 +265,14 @@ implements StatePlugin, UpdateMutator, EnvironmentMutator, DropManager<Product>
 		initialParams = productionParams.agentParams;
 		environment = env;
 
-		if (vals == null || !keepOldProducts) {
-			vals = new float[simulation.getTopology().width][simulation.getTopology().height];
-		} else {
-			vals = ArrayUtilities.resizeArray(vals, simulation.getTopology().width, simulation.getTopology().height);
+		field = new ProductionField(env, productionParams.valueRadius, productionParams.lazyValues);
+		if (keepOldProducts) {
+			// Products kept from the last run still count
+			for (int cell = 0; cell < env.topology.width * env.topology.height; cell++) {
+				Drop drop = env.getDrop(cell);
+				if (drop instanceof Product && ((Product) drop).isFrom(this))
+					field.add((Product) drop);
+			}
 		}
 	}
 
@@ -293,13 +288,7 @@ implements StatePlugin, UpdateMutator, EnvironmentMutator, DropManager<Product>
 
 	@Override
 	public void update() {
-		Iterator<TemporaryEffect> iterator = effects.iterator();
-		while(iterator.hasNext()) {
-			TemporaryEffect effect = iterator.next();
-			if (!effect.updateIsAlive(simulation.getTime())) {
-				iterator.remove();
-			}
-		}
+		// nothing, effects wear off through the scheduler
 	}
 
 	@Override
@@ -312,12 +301,15 @@ implements StatePlugin, UpdateMutator, EnvironmentMutator, DropManager<Product>
 		return value != null;
 	}
 
-	private List<TemporaryEffect> effects = new LinkedList<>();
-
-	public void applyEffect(TemporaryEffect effect) {
+	public void applyEffect(final TemporaryEffect effect) {
 		effect.startTime = simulation.getTime();
 		effect.apply();
-		effects.add(effect);
+		simulation.getScheduler().schedule(effect.getEndTime(), effect.target, new Runnable() {
+			@Override
+			public void run() {
+				effect.remove();
+			}
+		});
 	}
 
 }
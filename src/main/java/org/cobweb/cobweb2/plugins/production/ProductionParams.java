@@ -6,10 +6,28 @@ import java.util.List;
 import org.cobweb.cobweb2.core.AgentFoodCountable;
 import org.cobweb.cobweb2.core.StatePluginSource;
 import org.cobweb.cobweb2.plugins.PerAgentParams;
+import org.cobweb.io.ConfDisplayName;
+import org.cobweb.io.ConfXMLTag;
 
 
 public class ProductionParams extends PerAgentParams<ProductionAgentParams> implements StatePluginSource {
 
+	/**
+	 * Products only add to the productivity value of cells within this distance.
+	 * 0 spreads each product over the whole map.
+	 */
+	@ConfDisplayName("Product value radius (0 = whole map)")
+	@ConfXMLTag("valueRadius")
+	public float valueRadius = 0;
+
+	/**
+	 * Work out the productivity value of a cell from the products around it when it is needed,
+	 * instead of keeping the value of every cell up to date. Only used with a value radius.
+	 */
+	@ConfDisplayName("Compute product values on demand")
+	@ConfXMLTag("lazyValues")
+	public boolean lazyValues = false;
+
 	public ProductionParams(AgentFoodCountable envParams) {
 		super(ProductionAgentParams.class, envParams);
 	}
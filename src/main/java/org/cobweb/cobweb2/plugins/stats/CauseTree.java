@@ -3,9 +3,11 @@ package org.cobweb.cobweb2.plugins.stats;
 import java.lang.reflect.Modifier;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Queue;
 import java.util.Set;
 
@@ -13,10 +15,44 @@ import org.cobweb.cobweb2.core.Cause;
 import org.cobweb.cobweb2.plugins.stats.CauseTree.CauseTreeNode;
 import org.reflections.Reflections;
 
+/**
+ * Tree of all the kinds of Cause, each under the closest kind it is a subclass of.
+ *
+ * <p>Once built, every node gets an id, in breadth first order, and the ids of the nodes on its path
+ * to the root, so statistics can be kept in arrays indexed by id.
+ */
 public class CauseTree implements Iterable<CauseTreeNode> {
 
 	public CauseTreeNode root = new CauseTreeNode(null, Cause.class);
 
+	private final List<CauseTreeNode> nodes = new ArrayList<>();
+
+	private final Map<Class<?>, CauseTreeNode> byType = new HashMap<>();
+
+	private final ClassValue<CauseTreeNode> nodeLookup = new ClassValue<CauseTreeNode>() {
+		@Override
+		protected CauseTreeNode computeValue(Class<?> type) {
+			CauseTreeNode node = byType.get(type);
+			if (node != null)
+				return node;
+
+			// Not a kind the tree was built with, count it under the closest kind it belongs to
+			node = root;
+			boolean deeper = true;
+			while (deeper) {
+				deeper = false;
+				for (CauseTreeNode child : node.children) {
+					if (child.type.isAssignableFrom(type)) {
+						node = child;
+						deeper = true;
+						break;
+					}
+				}
+			}
+			return node;
+		}
+	};
+
 	public CauseTree() {
 		Reflections reflections = new Reflections("org.cobweb.cobweb2");
 		Set<Class<? extends Cause>> causeTypes = reflections.getSubTypesOf(Cause.class);
@@ -33,6 +69,38 @@ public class CauseTree implements Iterable<CauseTreeNode> {
 				throw new RuntimeException(ex);
 			}
 		}
+
+		for (CauseTreeNode node : this) {
+			node.id = nodes.size();
+			nodes.add(node);
+			byType.put(node.type, node);
+
+			int depth = 0;
+			for (CauseTreeNode n = node; n != null; n = n.parent)
+				depth++;
+			node.ancestors = new int[depth];
+			int i = 0;
+			for (CauseTreeNode n = node; n != null; n = n.parent)
+				node.ancestors[i++] = n.id;
+		}
+	}
+
+	/**
+	 * @return number of nodes, ids go from 0 to size - 1
+	 */
+	public int size() {
+		return nodes.size();
+	}
+
+	public CauseTreeNode getNode(int id) {
+		return nodes.get(id);
+	}
+
+	/**
+	 * @return node of the given kind of cause, or of the closest kind it belongs to
+	 */
+	public CauseTreeNode getNode(Class<?> type) {
+		return nodeLookup.get(type);
 	}
 
 	@Override
@@ -71,6 +139,16 @@ public class CauseTree implements Iterable<CauseTreeNode> {
 		public CauseTreeNode parent;
 		public List<CauseTreeNode> children = new ArrayList<>();
 
+		/**
+		 * Position of the node in the tree, set once the tree is built
+		 */
+		public int id;
+
+		/**
+		 * Ids of this node, its parent, and so on up to the root
+		 */
+		public int[] ancestors;
+
 		public CauseTreeNode(Cause cause, Class<? extends Cause> type) {
 			this.cause = cause;
 			this.type = type;
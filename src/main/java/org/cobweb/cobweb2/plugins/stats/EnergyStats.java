@@ -1,5 +1,7 @@
 package org.cobweb.cobweb2.plugins.stats;
 
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -8,22 +10,37 @@ import java.util.Set;
 
 import org.cobweb.cobweb2.core.Agent;
 import org.cobweb.cobweb2.core.Cause;
-import org.cobweb.cobweb2.core.Location;
 import org.cobweb.cobweb2.core.LocationDirection;
+import org.cobweb.cobweb2.core.SimulationInternals;
+import org.cobweb.cobweb2.core.SlottedStats;
+import org.cobweb.cobweb2.core.Topology;
 import org.cobweb.cobweb2.plugins.AgentState;
 import org.cobweb.cobweb2.plugins.EnergyMutator;
 import org.cobweb.cobweb2.plugins.EnvironmentMutator;
 import org.cobweb.cobweb2.plugins.stats.CauseTree.CauseTreeNode;
 
 
-public class EnergyStats implements EnergyMutator, EnvironmentMutator {
+public class EnergyStats implements EnergyMutator, EnvironmentMutator, SlottedStats {
 
-	public Map<Location, LocationStats> locationStats = new HashMap<>();
+	private Topology topology;
 
-	public static class LocationStats {
-		public int count;
-		public float total;
-	}
+	/**
+	 * Number of watched energy changes at each cell since the last update
+	 */
+	private int[] cellCounts = new int[0];
+
+	/**
+	 * Total watched energy change at each cell since the last update
+	 */
+	private float[] cellTotals = new float[0];
+
+	/**
+	 * Cells with changes since the last update, in the order they were first changed;
+	 * only these need clearing
+	 */
+	private int[] changedCells = new int[0];
+
+	private int changedCount = 0;
 
 	public static class CauseStats {
 		public CauseStats(CauseTreeNode node) {
@@ -48,51 +65,145 @@ public class EnergyStats implements EnergyMutator, EnvironmentMutator {
 
 	public CauseTree causeTree = new CauseTree();
 
+	/**
+	 * Same stats as causeStats, indexed by cause tree node id
+	 */
+	private final CauseStats[] statsById;
+
+	/**
+	 * Ids of the cause tree nodes that pass the white and black lists
+	 */
+	private volatile BitSet watched;
+
 	public EnergyStats() {
+		statsById = new CauseStats[causeTree.size()];
 		Iterator<CauseTreeNode> iterator = causeTree.iterator();
 		while (iterator.hasNext()) {
 			CauseTreeNode node = iterator.next();
 			CauseStats stats = new CauseStats(node);
 			causeStats.put(node.type, stats);
+			statsById[node.id] = stats;
 		}
+		updateWatched();
 	}
 
+	private SimulationInternals updateSlots;
+
+	/**
+	 * Watched changes made during tile updates, by update slot
+	 */
+	private SlotChanges[] slotChanges = new SlotChanges[0];
+
 	@Override
 	public void onEnergyChange(Agent agent, int delta, Cause cause) {
 		LocationDirection loc = agent.getPosition();
 		if (loc == null)
 			return;
 
-		Class<? extends Cause> causeClass = cause.getClass();
+		CauseTreeNode node = causeTree.getNode(cause.getClass());
+
+		if (!watched.get(node.id))
+			return;
 
-		if (!isWatching(causeClass))
+		int cell = topology.getCell(loc);
+		int slot = updateSlots == null ? -1 : updateSlots.getUpdateSlot();
+		if (slot >= 0) {
+			slotChanges[slot].record(node.id, cell, delta);
 			return;
+		}
 
-		updateCauseStats(delta, causeClass);
+		synchronized (this) {
+			updateCauseStats(delta, node);
+			updateCellStats(delta, cell);
+		}
+	}
 
-		updateLocationStats(delta, loc);
+	@Override
+	public synchronized void setUpdateSlots(SimulationInternals sim, int slots) {
+		updateSlots = sim;
+		slotChanges = new SlotChanges[slots];
+		for (int i = 0; i < slots; i++)
+			slotChanges[i] = new SlotChanges();
 	}
 
-	private void updateLocationStats(int delta, LocationDirection loc) {
-		LocationStats stats = locationStats.get(loc);
-		if (stats == null) {
-			stats = new LocationStats();
-			locationStats.put(loc, stats);
+	@Override
+	public synchronized void mergeUpdateSlots() {
+		for (SlotChanges changes : slotChanges) {
+			for (int i = 0; i < changes.size; i++) {
+				updateCauseStats(changes.deltas[i], statsById[changes.nodes[i]].node);
+				updateCellStats(changes.deltas[i], changes.cells[i]);
+			}
+			changes.size = 0;
 		}
+	}
 
-		stats.count++;
-		stats.total += delta;
+	/**
+	 * Watched changes made in one update slot, in the order they happened
+	 */
+	private static class SlotChanges {
+		int size = 0;
+		int[] nodes = new int[16];
+		int[] cells = new int[16];
+		int[] deltas = new int[16];
+
+		void record(int node, int cell, int delta) {
+			if (size == nodes.length) {
+				nodes = Arrays.copyOf(nodes, size * 2);
+				cells = Arrays.copyOf(cells, size * 2);
+				deltas = Arrays.copyOf(deltas, size * 2);
+			}
+			nodes[size] = node;
+			cells[size] = cell;
+			deltas[size] = delta;
+			size++;
+		}
 	}
 
-	private void updateCauseStats(int delta, Class<? extends Cause> causeClass) {
-		CauseStats stats = causeStats.get(causeClass);
-		do {
+	private void updateCellStats(int delta, int cell) {
+		if (cellCounts[cell] == 0)
+			changedCells[changedCount++] = cell;
+
+		cellCounts[cell]++;
+		cellTotals[cell] += delta;
+	}
+
+	public synchronized void setParams(Topology topology) {
+		this.topology = topology;
+		int cells = topology.width * topology.height;
+		cellCounts = new int[cells];
+		cellTotals = new float[cells];
+		changedCells = new int[cells];
+		changedCount = 0;
+	}
+
+	/**
+	 * @return cells with watched energy changes since the last update, in the order they were first
+	 * changed
+	 */
+	public synchronized int[] getChangedCells() {
+		return Arrays.copyOf(changedCells, changedCount);
+	}
+
+	/**
+	 * @return number of watched energy changes at the cell since the last update
+	 */
+	public synchronized int getChangeCount(int cell) {
+		return cellCounts[cell];
+	}
+
+	/**
+	 * @return total watched energy change at the cell since the last update
+	 */
+	public synchronized float getChangeTotal(int cell) {
+		return cellTotals[cell];
+	}
+
+	private void updateCauseStats(int delta, CauseTreeNode node) {
+		for (int id : node.ancestors) {
+			CauseStats stats = statsById[id];
 			stats.count++;
 			stats.totalDelta += delta;
-			if (stats.node.parent == null)
-				break;
-			stats = causeStats.get(stats.node.parent.type);
-		} while (stats != null);
+		}
 	}
 
 	public void resetStats() {
@@ -101,8 +212,13 @@ public class EnergyStats implements EnergyMutator, EnvironmentMutator {
 	}
 
 	@Override
-	public void update() {
-		locationStats = new HashMap<>();
+	public synchronized void update() {
+		for (int i = 0; i < changedCount; i++) {
+			int cell = changedCells[i];
+			cellCounts[cell] = 0;
+			cellTotals[cell] = 0;
+		}
+		changedCount = 0;
 	}
 
 	@Override
@@ -113,16 +229,19 @@ public class EnergyStats implements EnergyMutator, EnvironmentMutator {
 	public void whitelist(Class<? extends Cause> type) {
 		blackList.remove(type);
 		whiteList.add(type);
+		updateWatched();
 	}
 
 	public void blacklist(Class<? extends Cause> type) {
 		whiteList.remove(type);
 		blackList.add(type);
+		updateWatched();
 	}
 
 	public void unlist(Class<? extends Cause> type) {
 		whiteList.remove(type);
 		blackList.remove(type);
+		updateWatched();
 	}
 
 	public Set<Class<? extends Cause>> whiteList = new HashSet<>();
@@ -130,6 +249,19 @@ public class EnergyStats implements EnergyMutator, EnvironmentMutator {
 	public Set<Class<? extends Cause>> blackList = new HashSet<>();
 
 	public boolean isWatching(Class<? extends Cause> type) {
+		return watched.get(causeTree.getNode(type).id);
+	}
+
+	private void updateWatched() {
+		BitSet result = new BitSet(causeTree.size());
+		for (CauseTreeNode node : causeTree) {
+			if (passesLists(node.type))
+				result.set(node.id);
+		}
+		watched = result;
+	}
+
+	private boolean passesLists(Class<? extends Cause> type) {
 		if (!whiteList.isEmpty()) {
 			boolean found = false;
 			for (Class<? extends Cause> c : whiteList)
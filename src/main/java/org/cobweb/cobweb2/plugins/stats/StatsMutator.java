@@ -37,52 +37,120 @@ implements EnergyMutator, SpawnMutator, StepMutator {
 		this.sim = sim;
 	}
 
+	private static final int OTHER = 0;
+	private static final int STEP = 1;
+	private static final int TURN = 2;
+	private static final int BUMP_WALL = 3;
+	private static final int BUMP_AGENT = 4;
+	private static final int EAT_FAVORITE_FOOD = 5;
+	private static final int EAT_OTHER_FOOD = 6;
+	private static final int EAT_AGENT = 7;
+	private static final int PD_REWARD = 8;
+	private static final int PD_SUCKER = 9;
+	private static final int PD_TEMPTATION = 10;
+	private static final int PD_PUNISHMENT = 11;
+	private static final int REPRODUCTION = 12;
+	private static final int SEXUAL_REPRODUCTION = 13;
+
+	/**
+	 * Which statistic each kind of cause counts towards, worked out once per cause class
+	 */
+	private static final ClassValue<Integer> categories = new ClassValue<Integer>() {
+		@Override
+		protected Integer computeValue(Class<?> type) {
+			// movement
+			if (StepForwardCause.class.isAssignableFrom(type))
+				return STEP;
+			else if (TurnCause.class.isAssignableFrom(type))
+				return TURN;
+			else if (BumpWallCause.class.isAssignableFrom(type))
+				return BUMP_WALL;
+			else if (BumpAgentCause.class.isAssignableFrom(type))
+				return BUMP_AGENT;
+			// food
+			else if (EatFavoriteFoodCause.class.isAssignableFrom(type))
+				return EAT_FAVORITE_FOOD;
+			else if (EatFoodCause.class.isAssignableFrom(type))
+				return EAT_OTHER_FOOD;
+			else if (EatAgentCause.class.isAssignableFrom(type))
+				return EAT_AGENT;
+			// PD
+			else if (PDRewardCause.class.isAssignableFrom(type))
+				return PD_REWARD;
+			else if (PDSuckerCause.class.isAssignableFrom(type))
+				return PD_SUCKER;
+			else if (PDTemptationCause.class.isAssignableFrom(type))
+				return PD_TEMPTATION;
+			else if (PDPunishmentCause.class.isAssignableFrom(type))
+				return PD_PUNISHMENT;
+			// reproduction
+			else if (SexualReproductionCause.class.isAssignableFrom(type))
+				return SEXUAL_REPRODUCTION;
+			else if (ReproductionCause.class.isAssignableFrom(type))
+				return REPRODUCTION;
+			else
+				return OTHER;
+		}
+	};
+
 	@Override
 	public void onEnergyChange(Agent agent, int delta, Cause cause) {
 		AgentStatistics stats = getAgentState(agent);
 		if (stats == null) // Agent is dead
 			return;
 
-		// movement
-		if (cause instanceof StepForwardCause) {
-			stats.countSteps++;
-			stats.energyLossMovement -= delta;
-		} else if (cause instanceof TurnCause) {
-			stats.countTurns++;
-			stats.energyLossMovement -= delta;
-		} else if (cause instanceof BumpWallCause) {
-			stats.countRockBumps++;
-			stats.energyLossMovement -= delta;
-		} else if (cause instanceof BumpAgentCause) {
-			stats.countAgentBumps++;
-			stats.energyLossMovement -= delta;
-		}
-		// food
-		else if (cause instanceof EatFavoriteFoodCause) {
-			stats.energyGainFoodMine +=delta;
-		} else if (cause instanceof EatFoodCause) {
-			stats.energyGainFoodOther += delta;
-		} else if (cause instanceof EatAgentCause) {
-			stats.energyGainFoodAgents += delta;
-		}
-		// PD
-		else if (cause instanceof PDRewardCause) {
-			stats.pdReward++;
-		} else if (cause instanceof PDSuckerCause) {
-			stats.pdSucker++;
-		} else if (cause instanceof PDTemptationCause) {
-			stats.pdTemptation++;
-		} else if (cause instanceof PDPunishmentCause) {
-			stats.pdPunishment++;
-		}
-		// reproduction
-		else if (cause instanceof ReproductionCause) {
-			stats.energyLossReproduction -= delta;
-			if (cause instanceof SexualReproductionCause)
+		switch (categories.get(cause.getClass())) {
+			// movement
+			case STEP:
+				stats.countSteps++;
+				stats.energyLossMovement -= delta;
+				break;
+			case TURN:
+				stats.countTurns++;
+				stats.energyLossMovement -= delta;
+				break;
+			case BUMP_WALL:
+				stats.countRockBumps++;
+				stats.energyLossMovement -= delta;
+				break;
+			case BUMP_AGENT:
+				stats.countAgentBumps++;
+				stats.energyLossMovement -= delta;
+				break;
+			// food
+			case EAT_FAVORITE_FOOD:
+				stats.energyGainFoodMine += delta;
+				break;
+			case EAT_OTHER_FOOD:
+				stats.energyGainFoodOther += delta;
+				break;
+			case EAT_AGENT:
+				stats.energyGainFoodAgents += delta;
+				break;
+			// PD
+			case PD_REWARD:
+				stats.pdReward++;
+				break;
+			case PD_SUCKER:
+				stats.pdSucker++;
+				break;
+			case PD_TEMPTATION:
+				stats.pdTemptation++;
+				break;
+			case PD_PUNISHMENT:
+				stats.pdPunishment++;
+				break;
+			// reproduction
+			case SEXUAL_REPRODUCTION:
+				stats.energyLossReproduction -= delta;
 				stats.sexualPregs++;
+				break;
+			case REPRODUCTION:
+				stats.energyLossReproduction -= delta;
+				break;
+			default:
+				break;
 		}
-
-
 	}
 
 	@Override
@@ -144,7 +212,9 @@ implements EnergyMutator, SpawnMutator, StepMutator {
 	@Override
 	protected void setAgentState(Agent agent, AgentStatistics state) {
 		super.setAgentState(agent, state);
-		allStats.add(state);
+		synchronized (allStats) {
+			allStats.add(state);
+		}
 	}
 
 	List<AgentStatistics> allStats = new ArrayList<>();
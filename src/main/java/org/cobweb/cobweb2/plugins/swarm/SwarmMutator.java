@@ -1,21 +1,25 @@
 package org.cobweb.cobweb2.plugins.swarm;
 
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.List;
 
 import org.cobweb.cobweb2.core.Agent;
+import org.cobweb.cobweb2.core.AgentDensityIndex;
+import org.cobweb.cobweb2.core.CellFilter;
 import org.cobweb.cobweb2.core.Environment;
-import org.cobweb.cobweb2.core.Location;
+import org.cobweb.cobweb2.core.NullPhenotype;
 import org.cobweb.cobweb2.core.SimulationTimeSpace;
 import org.cobweb.cobweb2.core.StateParameter;
 import org.cobweb.cobweb2.core.StatePlugin;
+import org.cobweb.cobweb2.core.Topology;
+import org.cobweb.cobweb2.plugins.SelectiveMutator;
 import org.cobweb.cobweb2.plugins.SpawnMutator;
 import org.cobweb.cobweb2.plugins.StatefulMutatorBase;
 import org.cobweb.cobweb2.plugins.UpdateMutator;
 
 
-public class SwarmMutator extends StatefulMutatorBase<SwarmState> implements UpdateMutator, StatePlugin, SpawnMutator {
+public class SwarmMutator extends StatefulMutatorBase<SwarmState> implements UpdateMutator, StatePlugin, SpawnMutator,
+		SelectiveMutator {
 
 	public SwarmMutator() {
 		super(SwarmState.class);
@@ -39,6 +43,26 @@ public class SwarmMutator extends StatefulMutatorBase<SwarmState> implements Upd
 		for (int i = 0 ; i < causeKeys.length; i++) {
 			causeKeys[i] = new CauseKey(i);
 		}
+
+		densityIndex = null;
+		for (SwarmAgentParams agentParams : params.agentParams) {
+			indexRadii(agentParams);
+		}
+	}
+
+	/**
+	 * Agent counts by type, set up once some type or loaded state has an effect with a radius.
+	 * Until then, neighbours are counted cell by cell.
+	 */
+	private AgentDensityIndex densityIndex;
+
+	private void indexRadii(SwarmAgentParams agentParams) {
+		if (densityIndex != null)
+			return;
+		for (PairwiseEffect effect : agentParams.effects) {
+			if (effect.radius > 0)
+				densityIndex = env.getDensityIndex();
+		}
 	}
 
 	private CauseKey[] causeKeys;
@@ -54,6 +78,24 @@ public class SwarmMutator extends StatefulMutatorBase<SwarmState> implements Upd
 		}
 	}
 
+	/**
+	 * Agents of a type need swarm state only if one of the type's effects changes a parameter.
+	 */
+	@Override
+	public boolean isActive(Class<?> hook, int agentType) {
+		for (PairwiseEffect effect : params.agentParams[agentType].effects) {
+			if (!(effect.parameter instanceof NullPhenotype))
+				return true;
+		}
+		return false;
+	}
+
+	@Override
+	public void loadAgentState(Agent agent, SwarmState state) {
+		super.loadAgentState(agent, state);
+		indexRadii(state.agentParams);
+	}
+
 	@Override
 	public void onDeath(Agent agent) {
 		// nothing
@@ -67,7 +109,12 @@ public class SwarmMutator extends StatefulMutatorBase<SwarmState> implements Upd
 
 	@Override
 	public void onSpawn(Agent agent, Agent parent) {
-		setAgentState(agent, getAgentState(parent).clone());
+		SwarmState parentState = getAgentState(parent);
+		// Parents born while the plugin was off have no state
+		if (parentState == null)
+			onSpawn(agent);
+		else
+			setAgentState(agent, parentState.clone());
 	}
 
 	@Override
@@ -101,7 +148,9 @@ public class SwarmMutator extends StatefulMutatorBase<SwarmState> implements Upd
 		@Override
 		public double getValue(Agent agent) {
 			SwarmState state = getAgentState(agent);
-			PairwiseEffect effect = state.agentParams.effects[type];
+			// Agents without swarm state have the effects of their type
+			SwarmAgentParams agentParams = state != null ? state.agentParams : params.agentParams[agent.getType()];
+			PairwiseEffect effect = agentParams.effects[type];
 			float score = calculateScore(effect, type, agent);
 			float relScore = effect.relativeScore(score);
 			return relScore;
@@ -125,20 +174,37 @@ public class SwarmMutator extends StatefulMutatorBase<SwarmState> implements Upd
 		if (effect.radius <= 0)
 			return 1;
 
-		Collection<Location> locations = sim.getTopology().getArea(agent.getPosition(), effect.radius);
-		int count = 0;
-		for (Location location : locations) {
-			if (location.equals(agent.getPosition()))
-				continue;
-
-			Agent neighbor = env.getAgent(location);
-			if (neighbor != null && neighbor.getType() == type)
-				count++;
+		Topology topology = sim.getTopology();
+		int cell = topology.getCell(agent.getPosition());
+		int count;
+		if (densityIndex != null) {
+			count = densityIndex.countInArea(type, cell, effect.radius);
+			// The agent itself is not its own neighbour
+			if (env.getAgent(cell) == agent && agent.getType() == type)
+				count--;
+		} else {
+			count = topology.countInArea(cell, effect.radius, new NeighbourFilter(agent, type));
 		}
 
 		return effect.score(count);
 	}
 
+	private class NeighbourFilter implements CellFilter {
+		private final Agent agent;
+		private final int type;
+
+		public NeighbourFilter(Agent agent, int type) {
+			this.agent = agent;
+			this.type = type;
+		}
+
+		@Override
+		public boolean accept(int cell) {
+			Agent neighbor = env.getAgent(cell);
+			return neighbor != null && neighbor != agent && neighbor.getType() == type;
+		}
+	}
+
 	@Override
 	protected boolean validState(SwarmState value) {
 		return value.agentParams.effects.length == this.params.agentParams.length;
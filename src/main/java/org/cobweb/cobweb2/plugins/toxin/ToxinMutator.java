@@ -5,6 +5,8 @@ import java.util.Collection;
 
 import org.cobweb.cobweb2.core.Agent;
 import org.cobweb.cobweb2.core.RandomSource;
+import org.cobweb.cobweb2.core.SimulationInternals;
+import org.cobweb.cobweb2.core.SlottedStats;
 import org.cobweb.cobweb2.plugins.ConsumptionMutator;
 import org.cobweb.cobweb2.plugins.EnvironmentMutator;
 import org.cobweb.cobweb2.plugins.LoggingMutator;
@@ -12,7 +14,8 @@ import org.cobweb.cobweb2.plugins.StatefulSpawnMutatorBase;
 import org.cobweb.cobweb2.plugins.UpdateMutator;
 
 
-public class ToxinMutator extends StatefulSpawnMutatorBase<ToxinState> implements LoggingMutator, UpdateMutator, ConsumptionMutator, EnvironmentMutator {
+public class ToxinMutator extends StatefulSpawnMutatorBase<ToxinState> implements LoggingMutator, UpdateMutator, ConsumptionMutator, EnvironmentMutator,
+		SlottedStats {
 
 
 	private ToxinParams params;
@@ -91,10 +94,41 @@ public class ToxinMutator extends StatefulSpawnMutatorBase<ToxinState> implement
 	}
 
 	private void updateStats(Agent agent, ToxinState state) {
-		agentCount[agent.getType()]++;
-		agentTypeToxin[agent.getType()] += state.toxicity;
+		int slot = updateSlots.getUpdateSlot();
+		if (slot < 0) {
+			addStats(agentCount, agentTypeToxin, agentTypePoisoned, agent.getType(), state);
+		} else {
+			addStats(slotCount[slot], slotToxin[slot], slotPoisoned[slot], agent.getType(), state);
+		}
+	}
+
+	private static void addStats(int[] count, float[] toxin, int[] poisoned, int type, ToxinState state) {
+		count[type]++;
+		toxin[type] += state.toxicity;
 		if (state.isPoisoned()) {
-			agentTypePoisoned[agent.getType()]++;
+			poisoned[type]++;
+		}
+	}
+
+	@Override
+	public void setUpdateSlots(SimulationInternals sim, int slots) {
+		updateSlots = sim;
+		slotCount = new int[slots][agentCount.length];
+		slotToxin = new float[slots][agentCount.length];
+		slotPoisoned = new int[slots][agentCount.length];
+	}
+
+	@Override
+	public void mergeUpdateSlots() {
+		for (int slot = 0; slot < slotCount.length; slot++) {
+			for (int i = 0; i < agentCount.length; i++) {
+				agentCount[i] += slotCount[slot][i];
+				agentTypeToxin[i] += slotToxin[slot][i];
+				agentTypePoisoned[i] += slotPoisoned[slot][i];
+				slotCount[slot][i] = 0;
+				slotToxin[slot][i] = 0;
+				slotPoisoned[slot][i] = 0;
+			}
 		}
 	}
 
@@ -126,6 +160,15 @@ public class ToxinMutator extends StatefulSpawnMutatorBase<ToxinState> implement
 	private float[] agentTypeToxin;
 	private int[] agentTypePoisoned;
 
+	private SimulationInternals updateSlots;
+
+	/**
+	 * Same stats as above, gathered in each update slot during a tick
+	 */
+	private int[][] slotCount = new int[0][];
+	private float[][] slotToxin = new float[0][];
+	private int[][] slotPoisoned = new int[0][];
+
 	@Override
 	public void update() {
 		for(int i = 0; i < agentCount.length; i++) {
@@ -3,6 +3,7 @@ package org.cobweb.cobweb2.plugins.vision;
 import org.cobweb.cobweb2.core.Agent;
 import org.cobweb.cobweb2.core.Environment;
 import org.cobweb.cobweb2.core.LocationDirection;
+import org.cobweb.cobweb2.core.Topology;
 import org.cobweb.cobweb2.plugins.AgentState;
 
 
@@ -18,38 +19,61 @@ public class VisionState implements AgentState {
 
 	public static final int LOOK_DISTANCE = 4;
 
+	/**
+	 * SeeInfo is immutable, so every possible sight is made once and shared: [distance][type]
+	 */
+	private static final SeeInfo[][] SIGHTS = new SeeInfo[LOOK_DISTANCE + 1][Environment.FLAG_DROP + 1];
+	static {
+		for (int dist = 1; dist <= LOOK_DISTANCE; dist++) {
+			for (int type = 0; type <= Environment.FLAG_DROP; type++) {
+				SIGHTS[dist][type] = new SeeInfo(dist, type, LOOK_DISTANCE);
+			}
+		}
+	}
+
+	private static final SeeInfo NOTHING = new SeeInfo(LOOK_DISTANCE);
+
 	/**
 	 * This method allows the agent to see what is in front of it.
 	 *
 	 * @return What the agent sees and at what distance.
 	 */
 	public SeeInfo distanceLook() {
-		LocationDirection destPos = environment.topology.getAdjacent(agent.getPosition());
+		Topology topology = environment.topology;
+		LocationDirection position = agent.getPosition();
+		int direction = Topology.getDirectionIndex(position.direction);
+		if (direction < 0)
+			return NOTHING;
+
+		int cell = topology.getCell(position);
 
 		for (int dist = 1; dist <= LOOK_DISTANCE; ++dist) {
+			int next = topology.getAdjacentCell(cell, direction);
 
 			// We are looking at the wall
-			if (destPos == null)
-				return new SeeInfo(dist, Environment.FLAG_STONE, LOOK_DISTANCE);
+			if (next < 0)
+				return SIGHTS[dist][Environment.FLAG_STONE];
+
+			direction = topology.getAdjacentDirection(cell, direction);
+			cell = next;
 
 			// Check for stone...
-			if (environment.hasStone(destPos))
-				return new SeeInfo(dist, Environment.FLAG_STONE, LOOK_DISTANCE);
+			if (environment.hasStone(cell))
+				return SIGHTS[dist][Environment.FLAG_STONE];
 
 			// If there's another agent there, then return that it's a stone...
-			if (environment.hasAgent(destPos) && environment.getAgent(destPos) != agent)
-				return new SeeInfo(dist, Environment.FLAG_AGENT, LOOK_DISTANCE);
+			Agent other = environment.getAgent(cell);
+			if (other != null && other != agent)
+				return SIGHTS[dist][Environment.FLAG_AGENT];
 
 			// If there's food there, return the food...
-			if (environment.hasFood(destPos))
-				return new SeeInfo(dist, Environment.FLAG_FOOD, LOOK_DISTANCE);
-
-			if (environment.hasDrop(destPos))
-				return new SeeInfo(dist, Environment.FLAG_DROP, LOOK_DISTANCE);
+			if (environment.hasFood(cell))
+				return SIGHTS[dist][Environment.FLAG_FOOD];
 
-			destPos = environment.topology.getAdjacent(destPos);
+			if (environment.hasDrop(cell))
+				return SIGHTS[dist][Environment.FLAG_DROP];
 		}
-		return new SeeInfo(LOOK_DISTANCE);
+		return NOTHING;
 	}
 
 
@@ -2,11 +2,13 @@ package org.cobweb.cobweb2.plugins.waste;
 
 import org.cobweb.cobweb2.core.Agent;
 import org.cobweb.cobweb2.core.Cause;
-import org.cobweb.cobweb2.core.Drop;
+import org.cobweb.cobweb2.core.ExpiringDrop;
 import org.cobweb.cobweb2.core.Location;
 
 
-public class Waste implements Drop {
+public class Waste implements ExpiringDrop {
+
+	private static final WasteConsumptionCause WASTE_CONSUMPTION_CAUSE = new WasteConsumptionCause();
 
 	private int initialWeight;
 
@@ -44,10 +46,15 @@ public class Waste implements Drop {
 		}
 	}
 
+	@Override
+	public long getExpiryTime() {
+		return expireTick;
+	}
+
 
 	@Override
 	public boolean canStep(Agent agent) {
-		WasteAgentParams agentParams = wasteManager.getAgentState(agent).agentParams;
+		WasteAgentParams agentParams = wasteManager.getAgentParams(agent);
 		return agentParams.canConsume[type];
 	}
 
@@ -58,8 +65,8 @@ public class Waste implements Drop {
 
 	@Override
 	public void onStep(Agent agent) {
-		WasteAgentParams agentParams = wasteManager.getAgentState(agent).agentParams;
-		agent.changeEnergy(agentParams.consumeEnergy.getValue(), new WasteConsumptionCause());
+		WasteAgentParams agentParams = wasteManager.getAgentParams(agent);
+		agent.changeEnergy(agentParams.consumeEnergy.getValue(), WASTE_CONSUMPTION_CAUSE);
 		wasteManager.remove(this);
 	}
 
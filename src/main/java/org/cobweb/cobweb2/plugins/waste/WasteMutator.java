@@ -5,11 +5,12 @@ import java.util.Collection;
 import org.cobweb.cobweb2.core.*;
 import org.cobweb.cobweb2.plugins.DropManager;
 import org.cobweb.cobweb2.plugins.EnergyMutator;
+import org.cobweb.cobweb2.plugins.SelectiveMutator;
 import org.cobweb.cobweb2.plugins.StatefulSpawnMutatorBase;
 import org.cobweb.cobweb2.plugins.UpdateMutator;
 
 
-public class WasteMutator extends StatefulSpawnMutatorBase<WasteState> implements EnergyMutator, UpdateMutator,
+public class WasteMutator extends StatefulSpawnMutatorBase<WasteState> implements EnergyMutator, UpdateMutator, SelectiveMutator,
 DropManager<Waste>{
 
 	private WasteParams params;
@@ -26,6 +27,11 @@ DropManager<Waste>{
 		this.environment = env;
 	}
 
+	@Override
+	public boolean isActive(Class<?> hook, int agentType) {
+		return params.agentParams[agentType].wasteMode;
+	}
+
 	@Override
 	public void onEnergyChange(Agent agent, int delta, Cause cause) {
 		WasteState state = getAgentState(agent);
@@ -66,9 +72,21 @@ DropManager<Waste>{
 
 	@Override
 	protected WasteState stateFromParent(Agent agent, WasteState parentState) {
+		// Parents born while waste was off for their type have no state
+		if (parentState == null)
+			return stateForNewAgent(agent);
 		return new WasteState(parentState.agentParams.clone());
 	}
 
+	/**
+	 * Agents of types that do not make waste have no state, but can still run into waste left by others.
+	 * @return waste parameters of the agent
+	 */
+	WasteAgentParams getAgentParams(Agent agent) {
+		WasteState state = getAgentState(agent);
+		return state != null ? state.agentParams : params.agentParams[agent.getType()];
+	}
+
 	private boolean tryPoop(Agent agent, WasteAgentParams agentParams) {
 
 		Collection<Location> target = environment.getNearLocations(agent.getPosition());
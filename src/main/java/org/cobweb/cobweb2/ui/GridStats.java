@@ -1,6 +1,7 @@
 package org.cobweb.cobweb2.ui;
 
 import org.cobweb.cobweb2.Simulation;
+import org.cobweb.cobweb2.core.Agent;
 import org.cobweb.cobweb2.core.Location;
 import org.cobweb.cobweb2.core.Topology;
 import org.cobweb.cobweb2.impl.ComplexEnvironment;
@@ -61,8 +62,9 @@ public class GridStats {
 					if (environment.hasFood(l))
 						foodCount[environment.getFoodType(l)]++;
 
-					if (environment.hasAgent(l))
-						agentCount[environment.getAgent(l).getType()]++;
+					Agent agent = environment.getAgent(l);
+					if (agent != null)
+						agentCount[agent.getType()]++;
 				}
 			}
 		}
@@ -94,7 +94,7 @@ public class PopulationSampler {
 				cAgent.init(sim.theEnvironment, agentSample.position, agentSample.params, agentSample.energy);
 				for (Entry<Class<AgentState>, AgentState> pluginState : agentSample.plugins.entrySet()) {
 					if (sim.supportsState(pluginState.getKey(), pluginState.getValue())) {
-						cAgent.setState(pluginState.getKey(), pluginState.getValue());
+						sim.loadState(cAgent, pluginState.getKey(), pluginState.getValue());
 					}
 				}
 			}
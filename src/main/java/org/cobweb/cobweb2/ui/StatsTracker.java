@@ -4,8 +4,6 @@ import java.util.List;
 
 import org.cobweb.cobweb2.Simulation;
 import org.cobweb.cobweb2.core.Agent;
-import org.cobweb.cobweb2.core.Environment;
-import org.cobweb.cobweb2.core.Location;
 import org.cobweb.cobweb2.impl.ComplexAgent;
 import org.cobweb.cobweb2.plugins.pd.PDState;
 import org.cobweb.cobweb2.plugins.personalities.PersonalityState;
@@ -99,30 +97,11 @@ public class StatsTracker  {
 	}
 
 	public long countFoodTiles() {
-		Environment e = simulation.theEnvironment;
-		long foodCount = 0;
-		for (int x = 0; x < e.topology.width; ++x) {
-			for (int y = 0; y < e.topology.height; ++y) {
-				Location currentPos = new Location(x, y);
-				if (e.hasFood(currentPos))
-					++foodCount;
-			}
-		}
-		return foodCount;
+		return simulation.theEnvironment.countFood();
 	}
 
 	public int countFoodTiles(int foodType) {
-		Environment e = simulation.theEnvironment;
-		int foodCount = 0;
-		for (int x = 0; x < e.topology.width; ++x) {
-			for (int y = 0; y < e.topology.height; ++y) {
-				Location currentPos = new Location(x, y);
-				if (e.hasFood(currentPos))
-					if (e.getFoodType(currentPos) == foodType)
-						++foodCount;
-			}
-		}
-		return foodCount;
+		return simulation.theEnvironment.countFood(foodType);
 	}
 
 	public List<String> pluginStatsHeaderAgent() {
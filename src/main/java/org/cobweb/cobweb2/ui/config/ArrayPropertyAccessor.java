@@ -1,5 +1,7 @@
 package org.cobweb.cobweb2.ui.config;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
 import java.lang.reflect.Array;
 
 import org.cobweb.io.ConfDisplayFormat;
@@ -60,6 +62,11 @@ public class ArrayPropertyAccessor extends PropertyAccessorBase {
 		return value;
 	}
 
+	@Override
+	protected MethodHandle thisGetter() {
+		return MethodHandles.insertArguments(MethodHandles.arrayElementGetter(parent.getType()), 1, index);
+	}
+
 	@Override
 	public void thisSetValue(Object object, Object value) {
 		try {
@@ -1,5 +1,7 @@
 package org.cobweb.cobweb2.ui.config;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
 import java.lang.reflect.AnnotatedElement;
 import java.lang.reflect.Field;
 
@@ -62,6 +64,11 @@ public class FieldPropertyAccessor extends PropertyAccessorBase {
 		return value;
 	}
 
+	@Override
+	protected MethodHandle thisGetter() throws IllegalAccessException {
+		return MethodHandles.lookup().unreflectGetter(field);
+	}
+
 	@Override
 	public void thisSetValue(Object object, Object value) {
 		try {
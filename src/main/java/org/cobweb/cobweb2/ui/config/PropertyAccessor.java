@@ -1,5 +1,6 @@
 package org.cobweb.cobweb2.ui.config;
 
+import java.lang.invoke.MethodHandle;
 import java.lang.reflect.AnnotatedElement;
 
 /**
@@ -22,6 +23,12 @@ public interface PropertyAccessor {
 	 */
 	public Object get(Object object);
 
+	/**
+	 * Compiled form of get(), for properties that are read often.
+	 * @return handle of type (Object)Object that returns the value of the property for an object
+	 */
+	public MethodHandle getGetter();
+
 
 	public float getAsFloat(Object object);
 
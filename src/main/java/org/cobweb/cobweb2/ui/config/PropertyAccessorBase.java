@@ -1,5 +1,8 @@
 package org.cobweb.cobweb2.ui.config;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.AnnotatedElement;
 
 import org.cobweb.io.ConfXMLTag;
@@ -10,6 +13,12 @@ public abstract class PropertyAccessorBase implements PropertyAccessor {
 
 	protected final PropertyAccessor parent;
 
+	private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+	private static final MethodHandle THIS_GET_VALUE = findThisGetValue();
+
+	private MethodHandle getter;
+
 	protected PropertyAccessorBase() {
 		this(null);
 	}
@@ -81,6 +90,36 @@ public abstract class PropertyAccessorBase implements PropertyAccessor {
 
 	protected abstract Object thisGetValue(Object object);
 
+	@Override
+	public MethodHandle getGetter() {
+		if (getter == null) {
+			MethodHandle own;
+			try {
+				own = thisGetter().asType(GETTER_TYPE);
+			} catch (IllegalAccessException ex) {
+				own = THIS_GET_VALUE.bindTo(this);
+			}
+			getter = parent == null ? own : MethodHandles.filterReturnValue(parent.getGetter(), own);
+		}
+		return getter;
+	}
+
+	/**
+	 * Handle that reads this part of the property from the object returned by the parent.
+	 * Falls back to calling thisGetValue().
+	 */
+	protected MethodHandle thisGetter() throws IllegalAccessException {
+		return THIS_GET_VALUE.bindTo(this);
+	}
+
+	private static MethodHandle findThisGetValue() {
+		try {
+			return MethodHandles.lookup().findVirtual(PropertyAccessorBase.class, "thisGetValue", GETTER_TYPE);
+		} catch (NoSuchMethodException | IllegalAccessException ex) {
+			throw new RuntimeException(ex);
+		}
+	}
+
 	@Override
 	public float getAsFloat(Object object) {
 		if (parent != null)
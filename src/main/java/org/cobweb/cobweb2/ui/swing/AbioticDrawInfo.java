@@ -8,7 +8,7 @@ import java.util.List;
 import org.cobweb.cobweb2.Simulation;
 import org.cobweb.cobweb2.core.Topology;
 import org.cobweb.cobweb2.plugins.abiotic.AbioticFactor;
-import org.cobweb.cobweb2.plugins.abiotic.AbioticParams;
+import org.cobweb.cobweb2.plugins.abiotic.AbioticMutator;
 import org.cobweb.cobweb2.ui.swing.config.DisplaySettings;
 
 
@@ -16,10 +16,10 @@ public class AbioticDrawInfo implements OverlayGenerator, DisplayOverlay {
 
 	public List<FactorDrawInfo> factors = new ArrayList<>();
 
-	public AbioticDrawInfo(AbioticParams params, Topology topology) {
-		for (int i = 0; i < params.factors.size(); i++) {
-			AbioticFactor f = params.factors.get(i);
-			factors.add(new FactorDrawInfo(f, topology, i));
+	public AbioticDrawInfo(AbioticMutator abiotic, Topology topology) {
+		for (int i = 0; i < abiotic.params.factors.size(); i++) {
+			AbioticFactor f = abiotic.params.factors.get(i);
+			factors.add(new FactorDrawInfo(f, abiotic.getValues(i), topology, i));
 		}
 	}
 
@@ -33,7 +33,10 @@ public class AbioticDrawInfo implements OverlayGenerator, DisplayOverlay {
 		private float min;
 		private int index;
 
-		public FactorDrawInfo(AbioticFactor f, Topology topology, int index) {
+		/**
+		 * @param raster factor values by cell index, see {@link AbioticMutator#getValues(int)}
+		 */
+		public FactorDrawInfo(AbioticFactor f, float[] raster, Topology topology, int index) {
 			this.topology = topology;
 			this.index = index;
 			values = new float[4][];
@@ -42,22 +45,23 @@ public class AbioticDrawInfo implements OverlayGenerator, DisplayOverlay {
 			max = f.getMax();
 			min = f.getMin();
 
-			values[0] = new float[topology.width];
-			values[1] = new float[topology.width];
+			int width = topology.width;
+			int height = topology.height;
 
-			float maxX = ((float)topology.width - 1) / topology.width;
-			float maxY = ((float)topology.height - 1) / topology.height;
-
-			for (int x = 0; x < topology.width; x++) {
-				values[0][x] = normalize(f.getValue((float) x / topology.width, 0f));
-				values[1][x] = normalize(f.getValue((float) x / topology.width, maxX));
+			// Top and bottom rows
+			values[0] = new float[width];
+			values[1] = new float[width];
+			for (int x = 0; x < width; x++) {
+				values[0][x] = normalize(raster[x]);
+				values[1][x] = normalize(raster[(height - 1) * width + x]);
 			}
 
-			values[2] = new float[topology.height];
-			values[3] = new float[topology.height];
-			for (int y = 0; y < topology.height; y++) {
-				values[2][y] = normalize(f.getValue(0f, (float) y / topology.height));
-				values[3][y] = normalize(f.getValue(maxY, (float) y / topology.height));
+			// Left and right columns
+			values[2] = new float[height];
+			values[3] = new float[height];
+			for (int y = 0; y < height; y++) {
+				values[2][y] = normalize(raster[y * width]);
+				values[3][y] = normalize(raster[y * width + width - 1]);
 			}
 		}
 
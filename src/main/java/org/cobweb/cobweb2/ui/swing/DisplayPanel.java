@@ -132,10 +132,12 @@ public class DisplayPanel extends WaitableJComponent implements ComponentListene
 		}
 
 		private void dragAcross(Location loc) {
-			if (dragMode == DragMode.DragOn && canSetOn(loc)) {
-				setOn(loc);
-			} else if (dragMode == DragMode.DragOff && canSetOff(loc)) {
-				setOff(loc);
+			synchronized(simulation.theEnvironment) {
+				if (dragMode == DragMode.DragOn && canSetOn(loc)) {
+					setOn(loc);
+				} else if (dragMode == DragMode.DragOff && canSetOff(loc)) {
+					setOff(loc);
+				}
 			}
 		}
 
@@ -382,7 +384,7 @@ public class DisplayPanel extends WaitableJComponent implements ComponentListene
 			try {
 				overlays.put(AbioticDrawInfo.class,
 						new AbioticDrawInfo(
-								simulation.theEnvironment.getPlugin(AbioticMutator.class).params,
+								simulation.theEnvironment.getPlugin(AbioticMutator.class),
 								simulation.theEnvironment.topology)
 						);
 			} catch (NullPointerException ex) {
@@ -2,13 +2,9 @@ package org.cobweb.cobweb2.ui.swing.energy;
 
 import java.awt.Color;
 import java.awt.Graphics;
-import java.util.Map;
-import java.util.Map.Entry;
 
-import org.cobweb.cobweb2.core.Location;
 import org.cobweb.cobweb2.core.Topology;
 import org.cobweb.cobweb2.plugins.stats.EnergyStats;
-import org.cobweb.cobweb2.plugins.stats.EnergyStats.LocationStats;
 import org.cobweb.cobweb2.ui.swing.DisplayOverlay;
 import org.cobweb.cobweb2.ui.swing.OverlayUtils;
 import org.cobweb.cobweb2.ui.swing.config.DisplaySettings;
@@ -18,28 +14,36 @@ import org.cobweb.util.MathUtil;
 
 public class EnergyDrawInfo implements DisplayOverlay {
 
-	private Map<Location, LocationStats> locationStats;
+	private int[] cells;
+	private float[] totals;
 	private EnergyStatsConfig config;
 
 	public EnergyDrawInfo(EnergyStats plugin, EnergyStatsConfig config) {
 		this.config = config;
-		locationStats = plugin.locationStats;
+		// Copy out the changed cells only, all from the same tick
+		synchronized (plugin) {
+			cells = plugin.getChangedCells();
+			totals = new float[cells.length];
+			for (int i = 0; i < cells.length; i++)
+				totals[i] = plugin.getChangeTotal(cells[i]);
+		}
 	}
 
 	@Override
 	public void draw(Graphics g, int tileWidth, int tileHeight, Topology topology, DisplaySettings settings) {
 		OverlayUtils.fadeDisplay(g, tileWidth, tileHeight, topology, config.fade);
-		for (Entry<Location, LocationStats> ls : locationStats.entrySet()) {
-			Location l = ls.getKey();
+		for (int i = 0; i < cells.length; i++) {
+			int x = topology.getCellX(cells[i]);
+			int y = topology.getCellY(cells[i]);
 
-			g.translate(l.x * tileWidth, l.y * tileHeight);
-			drawTile(g, tileWidth, tileHeight, ls.getValue());
-			g.translate(-l.x * tileWidth, -l.y * tileHeight);
+			g.translate(x * tileWidth, y * tileHeight);
+			drawTile(g, tileWidth, tileHeight, totals[i]);
+			g.translate(-x * tileWidth, -y * tileHeight);
 		}
 	}
 
-	public void drawTile(Graphics g, int tileWidth, int tileHeight, LocationStats stats ) {
-		float scaledValue = stats.total * config.scale;
+	public void drawTile(Graphics g, int tileWidth, int tileHeight, float total) {
+		float scaledValue = total * config.scale;
 
 		float absSq = (float) Math.sqrt(Math.abs(scaledValue));
 
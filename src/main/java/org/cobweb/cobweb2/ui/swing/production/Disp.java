@@ -16,8 +16,9 @@ public class Disp extends TileOverlay {
 	private float max;
 
 	public Disp(ProductionMapper mapper) {
-		tiles = ArrayUtilities.clone(mapper.getValues());
-		max = mapper.getMax();
+		float[][] values = mapper.getValues();
+		tiles = ArrayUtilities.clone(values);
+		max = mapper.getMax(values);
 	}
 
 	@Override
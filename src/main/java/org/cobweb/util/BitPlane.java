@@ -0,0 +1,89 @@
+package org.cobweb.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * One bit per grid cell, packed 64 cells to a word.
+ *
+ * Single bits are changed with compare-and-set, so threads working on different cells can share a
+ * word safely. Bulk operations work a whole word at a time.
+ */
+public class BitPlane {
+
+	private static final int WORD_BITS = 64;
+
+	private final AtomicLongArray words;
+
+	private final int size;
+
+	public BitPlane(int size) {
+		this.size = size;
+		this.words = new AtomicLongArray((size + WORD_BITS - 1) / WORD_BITS);
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean get(int index) {
+		return (words.get(index / WORD_BITS) & (1L << index)) != 0;
+	}
+
+	public void set(int index) {
+		int w = index / WORD_BITS;
+		long mask = 1L << index;
+		long old;
+		do {
+			old = words.get(w);
+		} while (!words.compareAndSet(w, old, old | mask));
+	}
+
+	public void clear(int index) {
+		int w = index / WORD_BITS;
+		long mask = ~(1L << index);
+		long old;
+		do {
+			old = words.get(w);
+		} while (!words.compareAndSet(w, old, old & mask));
+	}
+
+	/**
+	 * Clears every bit.
+	 */
+	public void clearAll() {
+		for (int w = 0; w < words.length(); w++) {
+			words.set(w, 0);
+		}
+	}
+
+	/**
+	 * @return number of set bits
+	 */
+	public int count() {
+		int count = 0;
+		for (int w = 0; w < words.length(); w++) {
+			count += Long.bitCount(words.get(w));
+		}
+		return count;
+	}
+
+	/**
+	 * @param from first index to check
+	 * @return index of the first set bit at or after from, or -1 if there is none
+	 */
+	public int nextSetBit(int from) {
+		if (from >= size)
+			return -1;
+		int w = from / WORD_BITS;
+		long word = words.get(w) & (-1L << from);
+		while (true) {
+			if (word != 0) {
+				int index = w * WORD_BITS + Long.numberOfTrailingZeros(word);
+				return index < size ? index : -1;
+			}
+			if (++w == words.length())
+				return -1;
+			word = words.get(w);
+		}
+	}
+}
@@ -1,35 +1,56 @@
 package org.cobweb.util;
 
 import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.cobweb.io.ParameterSerializable;
 
 
 public class CloneHelper {
 
+	/**
+	 * MutatableFloat/Int fields of each class, looked up once
+	 */
+	private static final ClassValue<Field[]> mutatableFields = new ClassValue<Field[]>() {
+		@Override
+		protected Field[] computeValue(Class<?> type) {
+			List<Field> fields = new ArrayList<>();
+			for (Field f : type.getFields()) {
+				if (f.getType().equals(MutatableFloat.class) || f.getType().equals(MutatableInt.class))
+					fields.add(f);
+			}
+			return fields.toArray(new Field[fields.size()]);
+		}
+	};
+
 	/**
 	 * Finds MutatableFloat/Int fields in given ParameterSerializable and replaces them with new
 	 * instances with the same raw value and no multipliers applied.
 	 */
 	public static void resetMutatable(ParameterSerializable obj) {
-		Class<? extends ParameterSerializable> clazz = obj.getClass();
-		for (Field f : clazz.getFields()) {
+		for (Field f : mutatableFields.get(obj.getClass())) {
 			try {
-				if (f.getType().equals(MutatableFloat.class)) {
-					MutatableFloat original = (MutatableFloat) f.get(obj);
-					MutatableFloat copy = new MutatableFloat(original.getRawValue());
-					f.set(obj, copy);
+				MutatableField original = (MutatableField) f.get(obj);
+				f.set(obj, original.copy());
+			} catch (IllegalArgumentException | IllegalAccessException ex) {
+				throw new RuntimeException("Unexpected reflection error", ex);
+			}
+		}
 
-				} else if (f.getType().equals(MutatableInt.class))  {
-					MutatableInt original = (MutatableInt) f.get(obj);
-					MutatableInt copy = new MutatableInt(original.getRawValue());
-					f.set(obj, copy);
+	}
 
-				}
+	/**
+	 * Marks MutatableFloat/Int fields in given ParameterSerializable as shared.
+	 * @see MutatableField#share()
+	 */
+	public static void shareMutatable(ParameterSerializable obj) {
+		for (Field f : mutatableFields.get(obj.getClass())) {
+			try {
+				((MutatableField) f.get(obj)).share();
 			} catch (IllegalArgumentException | IllegalAccessException ex) {
 				throw new RuntimeException("Unexpected reflection error", ex);
 			}
 		}
-
 	}
 }
@@ -1,15 +1,49 @@
 package org.cobweb.util;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Arrays;
 
 /**
  * Allows stacking multiplier Factors on top of a value.
  * Factors have a Cause attached so they can be updated or removed.
+ *
+ * <p>Fields rarely have more than a few factors, so causes and factors are kept in small parallel
+ * arrays, in the order they were first applied, and found by a linear search.
+ *
+ * <p>A field can be shared by many owners, such as all the agents of a type, once share() is
+ * called. Shared fields take no multipliers; owners replace them with a copy() first.
  */
 public abstract class MutatableField {
 
-	private final Map<Object, Float> multipliers = new HashMap<>();
+	private static final Object[] NO_CAUSES = new Object[0];
+
+	private static final float[] NO_FACTORS = new float[0];
+
+	private Object[] causes = NO_CAUSES;
+
+	private float[] factors = NO_FACTORS;
+
+	private int count = 0;
+
+	private boolean shared = false;
+
+	/**
+	 * Marks this field as shared by several owners. Multipliers can not be set on it after this.
+	 */
+	public void share() {
+		shared = true;
+	}
+
+	/**
+	 * @return whether this field is shared by several owners
+	 */
+	public boolean isShared() {
+		return shared;
+	}
+
+	/**
+	 * @return new field, not shared, with the same raw value and no multipliers applied
+	 */
+	public abstract MutatableField copy();
 
 	/**
 	 * Adds/updates a multiplier identified by cause
@@ -17,8 +51,26 @@ public abstract class MutatableField {
 	 * @param factor multiplication factor
 	 */
 	public void setMultiplier(Object cause, float factor) {
-		multipliers.put(cause, factor);
-		updateCache();
+		if (shared)
+			throw new IllegalStateException("Shared field can not be modified, copy it first");
+
+		int i = indexOf(cause);
+		if (i < 0) {
+			if (count == causes.length) {
+				int size = Math.max(2, count * 2);
+				causes = Arrays.copyOf(causes, size);
+				factors = Arrays.copyOf(factors, size);
+			}
+			causes[count] = cause;
+			factors[count] = factor;
+			count++;
+			// Same as multiplying all the factors again, as the new one comes last
+			multiplier *= factor;
+
+		} else if (factors[i] != factor) {
+			factors[i] = factor;
+			updateCache();
+		}
 	}
 
 	/**
@@ -26,16 +78,32 @@ public abstract class MutatableField {
 	 * @param cause The source/cause of factor being removed
 	 */
 	public void removeMultiplier(Object cause) {
-		multipliers.remove(cause);
+		int i = indexOf(cause);
+		if (i < 0)
+			return;
+
+		count--;
+		System.arraycopy(causes, i + 1, causes, i, count - i);
+		System.arraycopy(factors, i + 1, factors, i, count - i);
+		causes[count] = null;
 		updateCache();
 	}
 
+	private int indexOf(Object cause) {
+		for (int i = 0; i < count; i++) {
+			if (causes[i] == cause || (cause != null && cause.equals(causes[i])))
+				return i;
+		}
+		return -1;
+	}
+
 	protected float multiplier = 1;
 
 	private void updateCache() {
+		// Multiplied out again rather than divided, so rounding errors do not build up
 		multiplier = 1;
-		for (Float m : multipliers.values())
-			multiplier *= m;
+		for (int i = 0; i < count; i++)
+			multiplier *= factors[i];
 	}
 
 }
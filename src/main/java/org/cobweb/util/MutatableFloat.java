@@ -36,4 +36,9 @@ public class MutatableFloat extends MutatableField {
 	public float getRawValue() {
 		return originalValue;
 	}
+
+	@Override
+	public MutatableFloat copy() {
+		return new MutatableFloat(originalValue);
+	}
 }
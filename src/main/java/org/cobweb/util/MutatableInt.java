@@ -36,4 +36,9 @@ public class MutatableInt extends MutatableField {
 	public int getRawValue() {
 		return originalValue;
 	}
+
+	@Override
+	public MutatableInt copy() {
+		return new MutatableInt(originalValue);
+	}
 }
@@ -1,8 +1,26 @@
 package org.cobweb.cobweb2;
 
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
 import junit.framework.TestCase;
 
+import org.cobweb.cobweb2.core.Agent;
+import org.cobweb.cobweb2.core.Phenotype;
+import org.cobweb.cobweb2.impl.ComplexAgentParams;
+import org.cobweb.cobweb2.impl.ai.LinearWeightAgentParam;
+import org.cobweb.cobweb2.impl.ai.LinearWeightsController;
+import org.cobweb.cobweb2.impl.ai.LinearWeightsControllerParams;
+import org.cobweb.cobweb2.plugins.disease.DiseaseAgentParams;
+import org.cobweb.cobweb2.plugins.genetics.PhenotypeIndex;
+import org.cobweb.cobweb2.plugins.stats.EnergyStats;
+import org.cobweb.cobweb2.plugins.toxin.ToxinAgentParams;
+import org.cobweb.cobweb2.ui.StatsLogger;
 import org.cobweb.cobweb2.ui.swing.CobwebApplicationRunner;
+import org.cobweb.util.RandomNoGenerator;
 
 /**
  * Run common simulations to make sure they do not crash.
@@ -16,4 +34,86 @@ public class SimulationTest extends TestCase {
 	public void testExperimentEverythingXml() {
 		CobwebApplicationRunner.main("src/main/resources/experiments/everything.xml", "testlog.tsv", "testpop.xml", "loadpop.xml", true, 2000, false);
 	}
+
+	/**
+	 * Tiled updates must give the same population and log for any number of threads.
+	 * Without threads agents are updated one by one in the order they were added, which only has
+	 * to give the same result from run to run.
+	 */
+	public void testParallelThreadsDeterministic() {
+		List<String> tiled = runFixedSeed(1);
+		assertEquals(tiled, runFixedSeed(2));
+		assertEquals(tiled, runFixedSeed(4));
+
+		assertEquals(runFixedSeed(0), runFixedSeed(0));
+	}
+
+	/**
+	 * @return log rows followed by the sorted population
+	 */
+	private static List<String> runFixedSeed(int threads) {
+		SimulationConfig config = new SimulationConfig();
+		config.parallelThreads = threads;
+		config.setControllerName(LinearWeightsController.class.getName());
+		for (ComplexAgentParams agent : config.agentParams.agentParams)
+			agent.initialAgents = 400;
+
+		RandomNoGenerator weights = new RandomNoGenerator(7);
+		LinearWeightsControllerParams controller = (LinearWeightsControllerParams) config.controllerParams;
+		for (LinearWeightAgentParam agent : controller.agentParams) {
+			for (double[] input : agent.dataInitial) {
+				for (int output = 0; output < input.length; output++)
+					input[output] = weights.nextFloat() * 2 - 1;
+			}
+		}
+
+		config.geneticParams.phenotype = new Phenotype[] { phenotype("FoodEnergy"), phenotype("StepEnergy") };
+		config.geneticParams.resizeGenes();
+
+		for (ToxinAgentParams toxin : config.toxinParams.agentParams) {
+			Arrays.fill(toxin.foodToxicity, 0.3f);
+			toxin.purgeRate.setValue(0.05f);
+			toxin.param = phenotype("StepEnergy");
+		}
+
+		for (DiseaseAgentParams disease : config.diseaseParams.agentParams) {
+			disease.initialInfection = 0.3f;
+			disease.recoveryTime = 30;
+			Arrays.fill(disease.transmitTo, true);
+		}
+
+		Simulation sim = new Simulation();
+		sim.load(config);
+
+		EnergyStats energy = sim.theEnvironment.getPlugin(EnergyStats.class);
+		List<String> result = new ArrayList<String>();
+		StringWriter log = new StringWriter();
+		StatsLogger logger = new StatsLogger(log, sim);
+		for (int tick = 0; tick < 200; tick++) {
+			sim.step();
+			logger.update(true);
+
+			StringBuilder stats = new StringBuilder(Arrays.toString(controller.getRunningOutputMean()));
+			for (int cell : energy.getChangedCells())
+				stats.append(' ').append(cell).append(':').append(energy.getChangeCount(cell)).append(':').append(energy.getChangeTotal(cell));
+			result.add(stats.toString());
+		}
+		logger.dispose();
+
+		result.addAll(Arrays.asList(log.toString().split("\\r?\\n")));
+		List<String> population = new ArrayList<String>();
+		for (Agent agent : sim.theEnvironment.getAgents())
+			population.add(agent.id + " " + agent.getType() + " " + agent.getPosition() + " " + agent.getEnergy());
+		Collections.sort(population);
+		result.addAll(population);
+		return result;
+	}
+
+	private static Phenotype phenotype(String identifier) {
+		for (Phenotype p : PhenotypeIndex.getPossibleValues()) {
+			if (p.getIdentifier().equals(identifier))
+				return p;
+		}
+		throw new IllegalArgumentException("No phenotype " + identifier);
+	}
 }
@@ -0,0 +1,122 @@
+package org.cobweb.cobweb2.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.cobweb.cobweb2.Simulation;
+import org.cobweb.cobweb2.SimulationConfig;
+import org.cobweb.cobweb2.impl.ComplexAgent;
+import org.cobweb.util.RandomNoGenerator;
+
+
+public class EnvironmentTest extends TestCase {
+
+	private SimulationConfig config;
+
+	private Simulation sim;
+
+	private Environment env;
+
+	private void setUpGrid(int width, int height, boolean wrap) {
+		config = new SimulationConfig();
+		config.envParams.width = width;
+		config.envParams.height = height;
+		config.envParams.wrapMap = wrap;
+
+		sim = new Simulation();
+		sim.load(config);
+		sim.theEnvironment.clearAgents();
+		env = sim.theEnvironment;
+	}
+
+	private Agent addAgent(int x, int y, int type) {
+		ComplexAgent agent = (ComplexAgent) sim.newAgent(type);
+		agent.init(sim.theEnvironment, new LocationDirection(new Location(x, y)), config.agentParams.agentParams[type], 100);
+		return agent;
+	}
+
+	public void testClosestAgentWrap() {
+		setUpGrid(20, 15, true);
+		Agent centre = addAgent(0, 0, 0);
+		Agent acrossEdge = addAgent(19, 0, 0);
+		Agent below = addAgent(0, 1, 0);
+		Agent other = addAgent(5, 5, 1);
+
+		// Tied at distance 1, top row first
+		assertEquals(acrossEdge, env.getClosestAgent(centre));
+		assertEquals(listOf(acrossEdge, below, other), env.getClosestAgents(centre, 3, Environment.ANY_TYPE));
+
+		assertEquals(other, env.getClosestAgent(centre, 1));
+		assertEquals(listOf(other), env.getClosestAgents(centre, 10, 1));
+
+		assertNull(env.getClosestAgent(centre, 2));
+		assertTrue(env.getClosestAgents(centre, 3, 2).isEmpty());
+		assertTrue(env.getClosestAgents(centre, 0, Environment.ANY_TYPE).isEmpty());
+	}
+
+	public void testClosestAgentAlone() {
+		setUpGrid(20, 15, true);
+		Agent centre = addAgent(7, 3, 0);
+
+		assertNull(env.getClosestAgent(centre));
+		assertTrue(env.getClosestAgents(centre, 5, Environment.ANY_TYPE).isEmpty());
+	}
+
+	/**
+	 * Ring search must give the same agents, in the same order, as sorting every agent
+	 */
+	public void testClosestAgentsMatchSort() {
+		for (boolean wrap : new boolean[] { false, true }) {
+			setUpGrid(25, 16, wrap);
+			RandomNoGenerator random = new RandomNoGenerator(42);
+			List<Agent> agents = new ArrayList<Agent>();
+			while (agents.size() < 60) {
+				int x = random.nextInt(25);
+				int y = random.nextInt(16);
+				if (!env.hasAgent(new Location(x, y)))
+					agents.add(addAgent(x, y, random.nextInt(2)));
+			}
+
+			for (Agent agent : agents) {
+				for (int type = Environment.ANY_TYPE; type < 2; type++) {
+					for (int count : new int[] { 1, 4, 100 }) {
+						List<Agent> expected = sortByDistance(agents, agent, type);
+						if (expected.size() > count)
+							expected = expected.subList(0, count);
+						assertEquals(expected, env.getClosestAgents(agent, count, type));
+					}
+				}
+			}
+		}
+	}
+
+	private List<Agent> sortByDistance(List<Agent> agents, Agent from, int type) {
+		final Topology topology = env.topology;
+		final int centre = topology.getCell(from.getPosition());
+		List<Agent> result = new ArrayList<Agent>();
+		for (Agent a : agents) {
+			if (a != from && (type == Environment.ANY_TYPE || a.getType() == type))
+				result.add(a);
+		}
+		Collections.sort(result, new Comparator<Agent>() {
+			@Override
+			public int compare(Agent a, Agent b) {
+				int cellA = topology.getCell(a.getPosition());
+				int cellB = topology.getCell(b.getPosition());
+				int byDistance = Integer.compare(topology.getDistanceSquared(centre, cellA), topology.getDistanceSquared(centre, cellB));
+				return byDistance != 0 ? byDistance : Integer.compare(cellA, cellB);
+			}
+		});
+		return result;
+	}
+
+	private static List<Agent> listOf(Agent... agents) {
+		List<Agent> result = new ArrayList<Agent>();
+		Collections.addAll(result, agents);
+		return result;
+	}
+}
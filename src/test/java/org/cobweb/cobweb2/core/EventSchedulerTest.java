@@ -0,0 +1,140 @@
+package org.cobweb.cobweb2.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+
+public class EventSchedulerTest extends TestCase {
+
+	private EventScheduler scheduler;
+
+	private List<String> log;
+
+	@Override
+	protected void setUp() {
+		scheduler = new EventScheduler();
+		log = new ArrayList<String>();
+	}
+
+	private Runnable record(final String name) {
+		return new Runnable() {
+			@Override
+			public void run() {
+				log.add(name);
+			}
+		};
+	}
+
+	private void runTo(long time, String... expected) {
+		scheduler.runEvents(time);
+		assertEquals(Arrays.asList(expected), log);
+		log.clear();
+	}
+
+	public void testRunsOnTime() {
+		scheduler.schedule(3, null, record("c"));
+		scheduler.schedule(1, null, record("a"));
+		scheduler.schedule(1, null, record("b"));
+
+		runTo(0);
+		runTo(1, "a", "b");
+		runTo(2);
+		runTo(5, "c");
+		assertEquals(0, scheduler.size());
+	}
+
+	public void testFarEvents() {
+		scheduler.schedule(10000, null, record("far"));
+		scheduler.schedule(300, null, record("later"));
+		scheduler.schedule(255, null, record("near"));
+
+		runTo(254);
+		runTo(255, "near");
+		runTo(299);
+		runTo(300, "later");
+		runTo(9999);
+		runTo(10000, "far");
+	}
+
+	public void testPastEventsRunNextTick() {
+		runTo(4);
+		scheduler.schedule(2, null, record("late"));
+		runTo(4);
+		runTo(5, "late");
+	}
+
+	public void testScheduleWhileRunning() {
+		scheduler.schedule(1, null, new Runnable() {
+			@Override
+			public void run() {
+				log.add("first");
+				scheduler.schedule(1, null, record("same tick"));
+				scheduler.schedule(2, null, record("next tick"));
+			}
+		});
+
+		runTo(1, "first");
+		runTo(2, "same tick", "next tick");
+	}
+
+	public void testCancel() {
+		EventScheduler.Event event = scheduler.schedule(2, null, record("cancelled"));
+		scheduler.schedule(2, null, record("kept"));
+		event.cancel();
+
+		runTo(2, "kept");
+	}
+
+	public void testDeadOwner() {
+		Agent alive = new TestAgent(2);
+		Agent dead = new TestAgent(1);
+		scheduler.schedule(1, alive, record("alive"));
+		scheduler.schedule(1, dead, record("dead"));
+		dead.die();
+
+		runTo(1, "alive");
+	}
+
+	public void testOwnerOrder() {
+		Agent second = new TestAgent(2);
+		Agent first = new TestAgent(1);
+		scheduler.schedule(1, second, record("2a"));
+		scheduler.schedule(1, first, record("1"));
+		scheduler.schedule(1, second, record("2b"));
+
+		runTo(1, "1", "2a", "2b");
+	}
+
+	public void testSetTime() {
+		scheduler.schedule(3, null, record("a"));
+		scheduler.schedule(500, null, record("b"));
+		runTo(1);
+
+		// Ticks 0 and 1 have run, so "a" is due on the second tick from now
+		scheduler.setTime(0);
+		runTo(0);
+		runTo(1, "a");
+		runTo(497);
+		runTo(498, "b");
+	}
+
+	private static class TestAgent extends Agent {
+		TestAgent(int id) {
+			super(0);
+			this.id = id;
+		}
+
+		@Override
+		public int takeapoop(LocationDirection location) {
+			return 0;
+		}
+
+		@Override
+		protected Agent createChildAsexual(LocationDirection location) {
+			return null;
+		}
+	}
+}
@@ -1,5 +1,10 @@
 package org.cobweb.cobweb2.core;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
 import junit.framework.TestCase;
 
 import org.cobweb.util.RandomNoGenerator;
@@ -79,6 +84,128 @@ public class TopologyTest extends TestCase {
 		assertEquals(1.0, t.getDistance(l99, l49)); // Vertical wrap
 	}
 
+	public void testAdjacentCells() {
+		Topology t = new Topology(randomSource, 10, 10, false);
+
+		int north = Topology.getDirectionIndex(Topology.NORTH);
+		int east = Topology.getDirectionIndex(Topology.EAST);
+		assertEquals(t.getCell(l01), t.getAdjacentCell(t.getCell(l11), Topology.getDirectionIndex(Topology.WEST)));
+		assertEquals(t.getCell(l11), t.getAdjacentCell(t.getCell(l00), Topology.getDirectionIndex(Topology.SOUTHEAST)));
+		assertEquals(-1, t.getAdjacentCell(t.getCell(l00), north));
+		assertEquals(-1, t.getAdjacentCell(t.getCell(l99), east));
+		assertFalse(t.isAdjacentFlipped(t.getCell(l00), north));
+	}
+
+	public void testAdjacentCellsWrap() {
+		Topology t = new Topology(randomSource, 10, 10, true);
+
+		int north = Topology.getDirectionIndex(Topology.NORTH);
+		int west = Topology.getDirectionIndex(Topology.WEST);
+		assertEquals(t.getCell(l90), t.getAdjacentCell(t.getCell(l00), west)); // Horizontal wrap
+		assertEquals(t.getCell(l50), t.getAdjacentCell(t.getCell(l00), north)); // Vertical wrap
+		assertTrue(t.isAdjacentFlipped(t.getCell(l00), north));
+		assertEquals(Topology.getReverseDirection(north), t.getAdjacentDirection(t.getCell(l00), north));
+
+		LocationDirection flipped = t.getAdjacent(new LocationDirection(l00, Topology.NORTH));
+		assertEquals(l50, flipped);
+		assertEquals(Topology.SOUTH, flipped.direction);
+	}
+
+	public void testArea() {
+		checkArea(new Topology(randomSource, 10, 10, false));
+		checkArea(new Topology(randomSource, 10, 10, true));
+		checkArea(new Topology(randomSource, 40, 30, true));
+		checkArea(new Topology(randomSource, 7, 5, true));
+	}
+
+	/**
+	 * Compares the area against a plain distance check of every cell.
+	 */
+	private void checkArea(final Topology t) {
+		float[] radii = { 0, 1, 1.5f, 2, 3.2f, 6 };
+		Location[] centres = { l00, l34, l99, new Location(t.width - 1, t.height - 1) };
+		for (Location centre : centres) {
+			if (!t.isValidLocation(centre))
+				continue;
+			for (float radius : radii) {
+				Set<Location> expected = new HashSet<Location>();
+				for (int x = 0; x < t.width; x++) {
+					for (int y = 0; y < t.height; y++) {
+						Location l = new Location(x, y);
+						if (t.getDistanceSquared(centre, l) <= radius * radius)
+							expected.add(l);
+					}
+				}
+
+				assertEquals(expected, t.getArea(centre, radius));
+				assertEquals(expected.size(), t.countInArea(t.getCell(centre), radius, new CellFilter() {
+					@Override
+					public boolean accept(int cell) {
+						return true;
+					}
+				}));
+
+				final List<Location> spanned = new ArrayList<Location>();
+				t.forEachSpanInArea(t.getCell(centre), radius, new SpanVisitor() {
+					@Override
+					public void visit(int row, int fromX, int toX) {
+						for (int x = fromX; x <= toX; x++)
+							spanned.add(new Location(x, row));
+					}
+				});
+				assertEquals(expected.size(), spanned.size());
+				assertEquals(expected, new HashSet<Location>(spanned));
+
+				final Set<Location> ringed = new HashSet<Location>();
+				for (int ring = 0; ring <= Math.ceil(radius); ring++) {
+					t.forEachInRing(t.getCell(centre), ring, new CellVisitor() {
+						@Override
+						public void visit(int cell) {
+							ringed.add(new Location(t.getCellX(cell), t.getCellY(cell)));
+						}
+					});
+				}
+				assertTrue(ringed.containsAll(expected));
+
+				final int centreCell = t.getCell(centre);
+				t.forEachInArea(centreCell, radius, new DistanceVisitor() {
+					@Override
+					public void visit(int cell, int distanceSquared) {
+						assertEquals(t.getDistanceSquared(centreCell, cell), distanceSquared);
+					}
+				});
+			}
+		}
+	}
+
+	/**
+	 * Enough different radii to grow the stencil cache several times
+	 */
+	public void testManyRadii() {
+		final Topology t = new Topology(randomSource, 40, 30, false);
+		int centre = t.getCell(l34);
+		for (int repeat = 0; repeat < 2; repeat++) {
+			for (int i = 0; i < 100; i++) {
+				float radius = i * 0.25f;
+				final Set<Integer> visited = new HashSet<Integer>();
+				t.forEachInArea(centre, radius, new CellVisitor() {
+					@Override
+					public void visit(int cell) {
+						visited.add(cell);
+					}
+				});
+				assertEquals(visited.size(), t.countInArea(centre, radius, new CellFilter() {
+					@Override
+					public boolean accept(int cell) {
+						return true;
+					}
+				}));
+				for (int cell : visited)
+					assertTrue(t.getDistanceSquared(centre, cell) <= radius * radius);
+			}
+		}
+	}
+
 
 
 }
@@ -0,0 +1,100 @@
+package org.cobweb.cobweb2.plugins.broadcast;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.cobweb.cobweb2.Simulation;
+import org.cobweb.cobweb2.SimulationConfig;
+import org.cobweb.cobweb2.core.Location;
+import org.cobweb.cobweb2.core.LocationDirection;
+import org.cobweb.cobweb2.core.Topology;
+import org.cobweb.cobweb2.impl.ComplexAgent;
+import org.cobweb.util.RandomNoGenerator;
+
+
+public class PacketConduitTest extends TestCase {
+
+	private static class TestPacket extends BroadcastPacket {
+		public TestPacket(ComplexAgent sender) {
+			super(sender);
+		}
+
+		@Override
+		public void process(ComplexAgent receiver) {
+			// nothing
+		}
+	}
+
+	/**
+	 * Bucketed lookup must find the same packet as checking every packet in the order it was sent
+	 */
+	public void testFindPacketMatchesScan() {
+		for (boolean wrap : new boolean[] { false, true }) {
+			for (int maxEnergy : new int[] { 30, 150, 600 }) {
+				checkAgainstScan(50, 40, wrap, maxEnergy);
+				checkAgainstScan(45, 33, wrap, maxEnergy);
+			}
+		}
+	}
+
+	private static void checkAgainstScan(int width, int height, boolean wrap, int maxEnergy) {
+		SimulationConfig config = new SimulationConfig();
+		config.envParams.width = width;
+		config.envParams.height = height;
+		config.envParams.wrapMap = wrap;
+		config.agentParams.agentParams[0].broadcastEnergyBased = true;
+		config.agentParams.agentParams[1].broadcastEnergyBased = true;
+		config.agentParams.agentParams[1].broadcastSameTypeOnly = true;
+
+		Simulation sim = new Simulation();
+		sim.load(config);
+		sim.theEnvironment.clearAgents();
+		Topology topology = sim.getTopology();
+
+		RandomNoGenerator random = new RandomNoGenerator(width * 31 + maxEnergy);
+		List<ComplexAgent> agents = new ArrayList<ComplexAgent>();
+		for (int i = 0; i < 40; i++) {
+			Location l = topology.getRandomLocation();
+			if (sim.theEnvironment.hasAgent(l))
+				continue;
+			int type = i % 2;
+			ComplexAgent agent = (ComplexAgent) sim.newAgent(type);
+			agent.init(sim.theEnvironment, new LocationDirection(l), config.agentParams.agentParams[type],
+					random.nextInt(maxEnergy));
+			agents.add(agent);
+		}
+
+		PacketConduit conduit = new PacketConduit();
+		conduit.setParams(topology, 0);
+		List<BroadcastPacket> sent = new ArrayList<BroadcastPacket>();
+		for (ComplexAgent agent : agents) {
+			BroadcastPacket packet = new TestPacket(agent);
+			conduit.addPacketToList(packet);
+			sent.add(packet);
+		}
+
+		for (int x = 0; x < width; x++) {
+			for (int y = 0; y < height; y++) {
+				Location position = new Location(x, y);
+				ComplexAgent receiver = agents.get((x * height + y) % agents.size());
+				assertSame("At " + position + " wrap " + wrap + " energy " + maxEnergy,
+						scan(topology, sent, position, receiver),
+						conduit.findPacket(position, receiver));
+			}
+		}
+	}
+
+	private static BroadcastPacket scan(Topology topology, List<BroadcastPacket> packets, Location position, ComplexAgent receiver) {
+		for (BroadcastPacket packet : packets) {
+			ComplexAgent s = packet.sender;
+			if (topology.getDistance(position, packet.location) < packet.range
+					&& !s.equals(receiver)
+					&& (!s.params.broadcastSameTypeOnly || receiver.getType() == s.getType())) {
+				return packet;
+			}
+		}
+		return null;
+	}
+}
@@ -0,0 +1,37 @@
+package org.cobweb.cobweb2.plugins.disease;
+
+import junit.framework.TestCase;
+
+import org.cobweb.cobweb2.Simulation;
+import org.cobweb.cobweb2.SimulationConfig;
+import org.cobweb.cobweb2.core.Location;
+import org.cobweb.cobweb2.core.LocationDirection;
+import org.cobweb.cobweb2.impl.ComplexAgent;
+
+
+public class DiseaseMutatorTest extends TestCase {
+
+	/**
+	 * Sick agents inserted from a saved population must recover like any other sick agent
+	 */
+	public void testLoadedSickAgentRecovers() {
+		SimulationConfig config = new SimulationConfig();
+		DiseaseAgentParams diseaseParams = config.diseaseParams.agentParams[0];
+		diseaseParams.recoveryTime = 10;
+
+		Simulation sim = new Simulation();
+		sim.load(config);
+		sim.theEnvironment.clearAgents();
+
+		ComplexAgent agent = (ComplexAgent) sim.newAgent(0);
+		agent.init(sim.theEnvironment, new LocationDirection(new Location(0, 0)), config.agentParams.agentParams[0], 100000);
+		sim.loadState(agent, DiseaseState.class, new DiseaseState(diseaseParams, true, false, sim.getTime()));
+		assertTrue(agent.getState(DiseaseState.class).sick);
+
+		for (int i = 0; i < 20; i++)
+			sim.step();
+
+		assertTrue(agent.isAlive());
+		assertNull(agent.getState(DiseaseState.class));
+	}
+}
@@ -0,0 +1,176 @@
+package org.cobweb.cobweb2.plugins.production;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.cobweb.cobweb2.Simulation;
+import org.cobweb.cobweb2.SimulationConfig;
+import org.cobweb.cobweb2.core.Location;
+import org.cobweb.cobweb2.core.LocationDirection;
+import org.cobweb.cobweb2.core.Topology;
+import org.cobweb.cobweb2.impl.ComplexAgent;
+import org.cobweb.util.RandomNoGenerator;
+
+
+public class ProductionFieldTest extends TestCase {
+
+	private SimulationConfig config;
+
+	private Simulation sim;
+
+	private Topology topology;
+
+	private ProductionMapper mapper;
+
+	@Override
+	protected void setUp() {
+		config = new SimulationConfig();
+		config.envParams.width = 30;
+		config.envParams.height = 20;
+
+		sim = new Simulation();
+		sim.load(config);
+		sim.theEnvironment.clearAgents();
+		topology = sim.getTopology();
+
+		mapper = new ProductionMapper(sim);
+		mapper.setParams(config.prodParams, sim.theEnvironment, false);
+	}
+
+	public void testAddRemoveSymmetry() {
+		ProductionField whole = new ProductionField(sim.theEnvironment, 0, false);
+		ProductionField near = new ProductionField(sim.theEnvironment, 3.5f, false);
+
+		List<Product> products = addRandomProducts(15, whole, near);
+		for (int i = products.size() - 1; i >= 0; i -= 2)
+			removeProduct(products.get(i), whole, near);
+		for (int i = products.size() - 2; i >= 0; i -= 2)
+			removeProduct(products.get(i), whole, near);
+
+		for (ProductionField field : new ProductionField[] { whole, near }) {
+			for (float[] column : field.getValues()) {
+				for (float v : column)
+					assertEquals(0, v, 1e-3f);
+			}
+			assertEquals(1f, field.getMax());
+		}
+	}
+
+	/**
+	 * Removing the product at the largest value has to bring the largest value down
+	 */
+	public void testMaxAfterRemovingPeak() {
+		ProductionField field = new ProductionField(sim.theEnvironment, 4, false);
+
+		Product big = addProduct(5, 5, 100, field);
+		addProduct(20, 10, 3, field);
+		assertEquals(100f, field.getMax());
+
+		removeProduct(big, field);
+		assertEquals(3f, field.getMax(), 1e-3f);
+		assertEquals(scanMax(field.getValues()), field.getMax());
+	}
+
+	public void testLazyMatchesEager() {
+		ProductionField eager = new ProductionField(sim.theEnvironment, 4, false);
+		ProductionField lazy = new ProductionField(sim.theEnvironment, 4, true);
+
+		List<Product> products = addRandomProducts(20, eager, lazy);
+		for (int i = 0; i < products.size(); i += 4)
+			removeProduct(products.get(i), eager, lazy);
+
+		float[][] eagerValues = eager.getValues();
+		float[][] lazyValues = lazy.getValues();
+		for (int x = 0; x < topology.width; x++) {
+			for (int y = 0; y < topology.height; y++) {
+				assertEquals(eagerValues[x][y], lazyValues[x][y], 1e-3f);
+				assertEquals(eagerValues[x][y], lazy.getValue(x, y), 1e-3f);
+			}
+		}
+		assertEquals(eager.getMax(), lazy.getMax(), 1e-3f);
+		assertEquals(lazy.getMax(), lazy.getMax(lazyValues));
+	}
+
+	/**
+	 * Without a radius, values are the same as adding every product to every cell of the map
+	 */
+	public void testWholeMapMatchesFullUpdate() {
+		ProductionField field = new ProductionField(sim.theEnvironment, 0, false);
+		float[][] expected = new float[topology.width][topology.height];
+
+		List<Product> products = addRandomProducts(10, field);
+		for (Product p : products)
+			fullUpdate(expected, p, true);
+		assertValues(expected, field);
+
+		for (int i = 1; i < products.size(); i += 3) {
+			Product p = products.get(i);
+			fullUpdate(expected, p, false);
+			removeProduct(p, field);
+			assertValues(expected, field);
+		}
+	}
+
+	private void assertValues(float[][] expected, ProductionField field) {
+		float[][] values = field.getValues();
+		for (int x = 0; x < topology.width; x++) {
+			for (int y = 0; y < topology.height; y++)
+				assertEquals(expected[x][y], values[x][y], 0f);
+		}
+		assertEquals(scanMax(expected), field.getMax());
+	}
+
+	private void fullUpdate(float[][] vals, Product p, boolean addition) {
+		for (int x = 0; x < topology.width; x++) {
+			for (int y = 0; y < topology.height; y++) {
+				float value = p.getValue();
+				value /= Math.max(1, topology.getDistanceSquared(p.getLocation(), new Location(x, y)));
+				vals[x][y] += addition ? value : - value;
+				if (vals[x][y] < 0)
+					vals[x][y] = 0;
+			}
+		}
+	}
+
+	private static float scanMax(float[][] values) {
+		float max = 1;
+		for (float[] column : values) {
+			for (float v : column)
+				max = Math.max(max, v);
+		}
+		return max;
+	}
+
+	private List<Product> addRandomProducts(int count, ProductionField... fields) {
+		RandomNoGenerator random = new RandomNoGenerator(count);
+		List<Product> products = new ArrayList<Product>();
+		while (products.size() < count) {
+			int x = random.nextInt(topology.width);
+			int y = random.nextInt(topology.height);
+			if (sim.theEnvironment.hasAgent(new Location(x, y)))
+				continue;
+			products.add(addProduct(x, y, 1 + random.nextInt(50), fields));
+		}
+		return products;
+	}
+
+	private Product addProduct(int x, int y, float value, ProductionField... fields) {
+		ComplexAgent producer = (ComplexAgent) sim.newAgent(0);
+		producer.init(sim.theEnvironment, new LocationDirection(new Location(x, y)), config.agentParams.agentParams[0], 100);
+		mapper.loadAgentState(producer, new ProductionState(config.prodParams.agentParams[0].clone()));
+
+		Product p = new Product(value, producer, mapper, 1000);
+		sim.theEnvironment.addDrop(p.getLocation(), p);
+		for (ProductionField field : fields)
+			field.add(p);
+		return p;
+	}
+
+	private void removeProduct(Product p, ProductionField... fields) {
+		for (ProductionField field : fields)
+			field.remove(p);
+		sim.theEnvironment.removeDrop(p.getLocation());
+	}
+}
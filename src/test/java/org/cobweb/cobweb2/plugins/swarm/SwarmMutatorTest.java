@@ -0,0 +1,44 @@
+package org.cobweb.cobweb2.plugins.swarm;
+
+import junit.framework.TestCase;
+
+import org.cobweb.cobweb2.Simulation;
+import org.cobweb.cobweb2.SimulationConfig;
+import org.cobweb.cobweb2.core.Location;
+import org.cobweb.cobweb2.core.LocationDirection;
+import org.cobweb.cobweb2.core.StateParameter;
+import org.cobweb.cobweb2.impl.ComplexAgent;
+
+
+public class SwarmMutatorTest extends TestCase {
+
+	/**
+	 * Loaded states can have a radius when none of the agent types do
+	 */
+	public void testLoadedStateRadiusCountsNeighbours() {
+		SimulationConfig config = new SimulationConfig();
+
+		Simulation sim = new Simulation();
+		sim.load(config);
+		sim.theEnvironment.clearAgents();
+
+		ComplexAgent agent = addAgent(sim, config, new Location(5, 5));
+		addAgent(sim, config, new Location(5, 6));
+		addAgent(sim, config, new Location(6, 5));
+		addAgent(sim, config, new Location(9, 9));
+
+		SwarmAgentParams loaded = config.swarmParams.agentParams[0].clone();
+		PairwiseEffect effect = loaded.effects[0];
+		effect.radius = 2;
+		sim.loadState(agent, SwarmState.class, new SwarmState(loaded));
+
+		StateParameter benefit = sim.getStateParameter(String.format(SwarmParams.STATE_NAME_SWARM_BENEFIT, 1));
+		assertEquals(effect.relativeScore(effect.score(2)), (float) benefit.getValue(agent));
+	}
+
+	private static ComplexAgent addAgent(Simulation sim, SimulationConfig config, Location l) {
+		ComplexAgent agent = (ComplexAgent) sim.newAgent(0);
+		agent.init(sim.theEnvironment, new LocationDirection(l), config.agentParams.agentParams[0], 100);
+		return agent;
+	}
+}
@@ -0,0 +1,67 @@
+package org.cobweb.util;
+
+import junit.framework.TestCase;
+
+
+public class MutatableFieldTest extends TestCase {
+
+	public void testStacking() {
+		Object a = new Object();
+		Object b = new Object();
+		MutatableFloat field = new MutatableFloat(10);
+
+		field.setMultiplier(a, 2);
+		field.setMultiplier(b, 0.5f);
+		assertEquals(10f, field.getValue());
+
+		field.setMultiplier(a, 3);
+		assertEquals(15f, field.getValue());
+
+		field.removeMultiplier(a);
+		assertEquals(5f, field.getValue());
+
+		field.removeMultiplier(a);
+		field.removeMultiplier(b);
+		assertEquals(10f, field.getValue());
+		assertEquals(10f, field.getRawValue());
+	}
+
+	public void testZeroFactor() {
+		Object a = new Object();
+		MutatableInt field = new MutatableInt(4);
+
+		field.setMultiplier(a, 0);
+		assertEquals(0, field.getValue());
+
+		field.setMultiplier(a, 1.5f);
+		assertEquals(6, field.getValue());
+	}
+
+	public void testEqualCauses() {
+		MutatableFloat field = new MutatableFloat(1);
+
+		field.setMultiplier("cause", 2);
+		field.setMultiplier(new String("cause"), 4);
+		assertEquals(4f, field.getValue());
+
+		field.removeMultiplier(new String("cause"));
+		assertEquals(1f, field.getValue());
+	}
+
+	public void testSharedCopy() {
+		MutatableInt shared = new MutatableInt(4);
+		shared.share();
+		try {
+			shared.setMultiplier("cause", 2);
+			fail("Shared field was modified");
+		} catch (IllegalStateException ex) {
+			// expected
+		}
+
+		MutatableInt own = shared.copy();
+		assertFalse(own.isShared());
+		own.setMultiplier("cause", 2);
+		assertEquals(8, own.getValue());
+		assertEquals(4, shared.getValue());
+	}
+}